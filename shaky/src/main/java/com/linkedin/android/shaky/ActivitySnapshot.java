@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.app.Activity;
+import android.app.FragmentManager;
+import android.content.res.Configuration;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.view.View;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.FragmentActivity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable copy of the state of an {@link Activity}, taken on the main thread when the feedback
+ * flow starts. Unlike the activity itself, it is safe to read from any thread.
+ */
+public final class ActivitySnapshot {
+
+    private final String activityClassName;
+    @Nullable
+    private final Bundle intentExtras;
+    private final List<String> fragmentBackStack;
+    private final List<Rect> windowFrames;
+    private final int decorViewWidth;
+    private final int decorViewHeight;
+    private final Configuration configuration;
+    private final long uptimeMillis;
+
+    private ActivitySnapshot(@NonNull String activityClassName,
+                             @Nullable Bundle intentExtras,
+                             @NonNull List<String> fragmentBackStack,
+                             @NonNull List<Rect> windowFrames,
+                             int decorViewWidth,
+                             int decorViewHeight,
+                             @NonNull Configuration configuration,
+                             long uptimeMillis) {
+        this.activityClassName = activityClassName;
+        this.intentExtras = intentExtras;
+        this.fragmentBackStack = fragmentBackStack;
+        this.windowFrames = windowFrames;
+        this.decorViewWidth = decorViewWidth;
+        this.decorViewHeight = decorViewHeight;
+        this.configuration = configuration;
+        this.uptimeMillis = uptimeMillis;
+    }
+
+    /**
+     * Copies the state of the given activity.
+     */
+    @NonNull
+    @MainThread
+    static ActivitySnapshot capture(@NonNull Activity activity) {
+        Bundle extras = activity.getIntent() != null ? activity.getIntent().getExtras() : null;
+
+        List<String> backStack = new ArrayList<>();
+        if (activity instanceof FragmentActivity) {
+            androidx.fragment.app.FragmentManager fragmentManager =
+                    ((FragmentActivity) activity).getSupportFragmentManager();
+            for (int i = 0; i < fragmentManager.getBackStackEntryCount(); i++) {
+                androidx.fragment.app.FragmentManager.BackStackEntry entry = fragmentManager.getBackStackEntryAt(i);
+                backStack.add(getBackStackEntryName(entry.getName(), entry.getId()));
+            }
+        }
+        FragmentManager platformFragmentManager = activity.getFragmentManager();
+        for (int i = 0; i < platformFragmentManager.getBackStackEntryCount(); i++) {
+            FragmentManager.BackStackEntry entry = platformFragmentManager.getBackStackEntryAt(i);
+            backStack.add(getBackStackEntryName(entry.getName(), entry.getId()));
+        }
+
+        List<Rect> windowFrames = new ArrayList<>();
+        for (MultiWindowScreenshotCapture.ViewRootData rootView
+                : MultiWindowScreenshotCapture.getRootViews(activity)) {
+            windowFrames.add(new Rect(rootView._originalWinFrame));
+        }
+
+        View decorView = activity.getWindow().getDecorView();
+
+        return new ActivitySnapshot(
+                activity.getClass().getName(),
+                extras != null ? new Bundle(extras) : null,
+                Collections.unmodifiableList(backStack),
+                Collections.unmodifiableList(windowFrames),
+                decorView.getWidth(),
+                decorView.getHeight(),
+                new Configuration(activity.getResources().getConfiguration()),
+                SystemClock.uptimeMillis());
+    }
+
+    @NonNull
+    private static String getBackStackEntryName(@Nullable String name, int id) {
+        return name != null ? name : "#" + id;
+    }
+
+    /**
+     * @return the fully qualified class name of the activity
+     */
+    @NonNull
+    public String getActivityClassName() {
+        return activityClassName;
+    }
+
+    /**
+     * @return a copy of the extras of the Intent that started the activity, or null if there were
+     * none. Note that the copy is shallow, so mutable values should be treated as read-only.
+     */
+    @Nullable
+    public Bundle getIntentExtras() {
+        return intentExtras != null ? new Bundle(intentExtras) : null;
+    }
+
+    /**
+     * @return the names of the entries on the activity's fragment back stacks, oldest first. Entries
+     * without a name are listed as "#id".
+     */
+    @NonNull
+    public List<String> getFragmentBackStack() {
+        return fragmentBackStack;
+    }
+
+    /**
+     * @return the on-screen bounds of every window that was visible (activity, dialogs, bottom
+     * sheets), or an empty list if they could not be determined
+     */
+    @NonNull
+    public List<Rect> getWindowFrames() {
+        List<Rect> copy = new ArrayList<>(windowFrames.size());
+        for (Rect frame : windowFrames) {
+            copy.add(new Rect(frame));
+        }
+        return copy;
+    }
+
+    public int getDecorViewWidth() {
+        return decorViewWidth;
+    }
+
+    public int getDecorViewHeight() {
+        return decorViewHeight;
+    }
+
+    /**
+     * @return a copy of the activity's configuration (orientation, locale, font scale, etc.)
+     */
+    @NonNull
+    public Configuration getConfiguration() {
+        return new Configuration(configuration);
+    }
+
+    /**
+     * @return the {@link SystemClock#uptimeMillis()} at which the snapshot was taken
+     */
+    public long getUptimeMillis() {
+        return uptimeMillis;
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Draws the strokes from {@link Paper} onto the full resolution screenshot they were drawn over,
+ * and writes the result back over the screenshot. Unless the delegate wants drawings kept separate,
+ * in which case only the redactions are burned in and the markup is saved as an
+ * {@link AnnotationLayer} next to the screenshot.
+ * <p/>
+ * If the screenshot was cropped, only the part that is kept is decoded, and it replaces the
+ * screenshot whether or not the drawing is kept separate.
+ */
+final class AnnotationCompositor {
+    private static final String TAG = AnnotationCompositor.class.getSimpleName();
+    private static final int FULL_QUALITY = 100;
+
+    @NonNull
+    private final StrokeBuffer strokes;
+    @Nullable
+    private final RectF crop;
+    @NonNull
+    private final Matrix viewToDrawable;
+    private final int drawableWidth;
+    private final int drawableHeight;
+
+    /**
+     * @param strokes the strokes, in view coordinates
+     * @param crop the part of the screenshot to keep, in view coordinates, or null to keep it all
+     * @param viewToDrawable maps view coordinates onto the image as it was shown
+     * @param drawableWidth width of the image as it was shown, before scaling to the view
+     * @param drawableHeight height of the image as it was shown, before scaling to the view
+     */
+    AnnotationCompositor(@NonNull StrokeBuffer strokes,
+                         @Nullable RectF crop,
+                         @NonNull Matrix viewToDrawable,
+                         int drawableWidth,
+                         int drawableHeight) {
+        this.strokes = strokes;
+        this.crop = crop;
+        this.viewToDrawable = viewToDrawable;
+        this.drawableWidth = drawableWidth;
+        this.drawableHeight = drawableHeight;
+    }
+
+    /**
+     * @param screenshot the full resolution screenshot if it is still in memory, otherwise it is
+     *                   read from the Uri
+     * @return true if the annotated screenshot or the layer was written
+     */
+    @WorkerThread
+    boolean composite(@NonNull Context context, @NonNull Uri uri, @Nullable Bitmap screenshot) {
+        int imageWidth;
+        int imageHeight;
+        if (screenshot != null) {
+            imageWidth = screenshot.getWidth();
+            imageHeight = screenshot.getHeight();
+        } else {
+            BitmapFactory.Options bounds = Utils.decodeBounds(context, uri);
+            imageWidth = bounds.outWidth;
+            imageHeight = bounds.outHeight;
+        }
+        if (imageWidth <= 0 || imageHeight <= 0) {
+            Log.e(TAG, "Could not read the screenshot to annotate: " + uri);
+            return false;
+        }
+
+        Matrix viewToImage = getViewToImageMatrix(imageWidth, imageHeight);
+        Rect region = getCropRegion(viewToImage, imageWidth, imageHeight);
+        if (region != null) {
+            // the cropped screenshot starts at the crop
+            viewToImage.postTranslate(-region.left, -region.top);
+        }
+
+        File screenshotFile = AnnotationLayer.getScreenshotFile(uri);
+        if (AnnotationLayer.isFlattened() || screenshotFile == null) {
+            return flatten(context, uri, screenshot, region, viewToImage, strokes);
+        }
+
+        // the thick and pixelate brushes redact, so they always go into the screenshot itself and
+        // only the thin markup is kept in the layer, where it could be taken off again
+        StrokeBuffer redactions = strokes.filter(StrokeBuffer.BRUSH_THIN, false);
+        if ((region != null || !redactions.isEmpty())
+                && !flatten(context, uri, screenshot, region, viewToImage, redactions)) {
+            return false;
+        }
+        AnnotationLayer layer = new AnnotationLayer(
+                AnnotationLayer.map(strokes.filter(StrokeBuffer.BRUSH_THIN, true), viewToImage),
+                region != null ? region.width() : imageWidth,
+                region != null ? region.height() : imageHeight,
+                viewToImage.mapRadius(1f));
+        return layer.write(screenshotFile);
+    }
+
+    /**
+     * Draws the strokes into the screenshot, or the part of it that is kept, and writes it back.
+     */
+    @WorkerThread
+    private static boolean flatten(@NonNull Context context,
+                                   @NonNull Uri uri,
+                                   @Nullable Bitmap screenshot,
+                                   @Nullable Rect region,
+                                   @NonNull Matrix viewToImage,
+                                   @NonNull StrokeBuffer strokes) {
+        Bitmap image = readImage(context, uri, screenshot, region);
+        if (image == null) {
+            Log.e(TAG, "Could not read the screenshot to annotate: " + uri);
+            return false;
+        }
+
+        // map the strokes rather than the canvas, so the mosaic lines up with the image's pixels
+        float strokeScale = viewToImage.mapRadius(1f);
+        StrokeBuffer mapped = AnnotationLayer.map(strokes, viewToImage);
+        Shader mosaic = mapped.hasBrush(StrokeBuffer.BRUSH_PIXELATE)
+                ? Paper.createMosaicShader(image, Paper.getMosaicBlockSize() * strokeScale, new Matrix())
+                : null;
+        Paper.drawStrokes(new Canvas(image), mapped, strokeScale, mosaic);
+
+        boolean written = write(context, uri, image);
+        // full resolution, too large to be worth keeping in the pool
+        image.recycle();
+        return written;
+    }
+
+    /**
+     * @return a mutable copy of the screenshot, or of just the region of it
+     */
+    @Nullable
+    @WorkerThread
+    private static Bitmap readImage(@NonNull Context context,
+                                    @NonNull Uri uri,
+                                    @Nullable Bitmap screenshot,
+                                    @Nullable Rect region) {
+        if (screenshot == null) {
+            // the screenshot may have been shown subsampled, so read the whole thing at full size
+            return region != null
+                    ? Utils.decodeRegion(context, uri, region)
+                    : Utils.decodeSampledBitmap(context, uri, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+        if (region == null) {
+            return screenshot.copy(Bitmap.Config.ARGB_8888, true);
+        }
+        Bitmap image = Bitmap.createBitmap(region.width(), region.height(), Bitmap.Config.ARGB_8888);
+        new Canvas(image).drawBitmap(screenshot, -region.left, -region.top, null);
+        return image;
+    }
+
+    /**
+     * @return the pixels of the screenshot inside the crop, or null if it isn't cropped
+     */
+    @Nullable
+    private Rect getCropRegion(@NonNull Matrix viewToImage, int imageWidth, int imageHeight) {
+        if (crop == null) {
+            return null;
+        }
+        RectF mapped = new RectF();
+        viewToImage.mapRect(mapped, crop);
+        Rect region = new Rect();
+        mapped.roundOut(region);
+        if (!region.intersect(0, 0, imageWidth, imageHeight)
+                || (region.width() == imageWidth && region.height() == imageHeight)) {
+            return null;
+        }
+        return region;
+    }
+
+    @NonNull
+    private Matrix getViewToImageMatrix(int imageWidth, int imageHeight) {
+        Matrix viewToImage = new Matrix(viewToDrawable);
+        viewToImage.postScale(imageWidth / (float) drawableWidth, imageHeight / (float) drawableHeight);
+        return viewToImage;
+    }
+
+    @WorkerThread
+    private static boolean write(@NonNull Context context, @NonNull Uri uri, @NonNull Bitmap image) {
+        if (ContentResolver.SCHEME_FILE.equals(uri.getScheme())) {
+            // same encoder as the original, and never leave a half written screenshot behind
+            File file = new File(uri.getPath());
+            File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+            if (Utils.writeBitmapToFile(image, temp) == null) {
+                return false;
+            }
+            if (!temp.renameTo(file)) {
+                Log.e(TAG, "Could not replace the screenshot: " + file);
+                temp.delete();
+                return false;
+            }
+            return true;
+        }
+
+        OutputStream outputStream = null;
+        try {
+            outputStream = Utils.openOutputStream(context, uri);
+            boolean written = image.compress(Bitmap.CompressFormat.PNG, FULL_QUALITY, outputStream);
+            outputStream.close();
+            outputStream = null;
+            return written;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write updated bitmap to disk", e);
+            return false;
+        } finally {
+            Utils.closeQuietly(outputStream);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+/**
+ * Drawings kept next to the screenshot instead of in it, when the delegate doesn't want them
+ * flattened (see {@link ShakeDelegate#shouldFlattenAnnotations()}).
+ * <p/>
+ * A screenshot {@code shaky_123.png} gets a {@code shaky_123.png.strokes} file with the strokes in
+ * the {@link StrokeBuffer} encoding, mapped onto the screenshot's pixels, which is read back when
+ * the screenshot is edited again, and a {@code shaky_123.png.svg} file of the same strokes, which
+ * is sent along with the screenshot.
+ * <p/>
+ * Only the thin markup strokes are kept here. Thick and pixelate strokes hide what is under them,
+ * so they are always burned into the screenshot, where they can't be lifted off again.
+ */
+final class AnnotationLayer {
+    private static final String TAG = AnnotationLayer.class.getSimpleName();
+    private static final String STROKES_EXTENSION = ".strokes";
+    private static final String SVG_EXTENSION = ".svg";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAGIC = 0x53484c59;
+    private static final int VERSION = 1;
+
+    private static volatile boolean isFlattened = true;
+
+    /** The strokes, in the pixels of the screenshot. */
+    @NonNull
+    final StrokeBuffer strokes;
+    final int imageWidth;
+    final int imageHeight;
+    /** How much larger than on screen the strokes are in the screenshot's pixels. */
+    final float strokeScale;
+
+    AnnotationLayer(@NonNull StrokeBuffer strokes, int imageWidth, int imageHeight, float strokeScale) {
+        this.strokes = strokes;
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.strokeScale = strokeScale;
+    }
+
+    static void setFlattened(boolean flattened) {
+        isFlattened = flattened;
+    }
+
+    /**
+     * @return true if drawings are burned into the screenshot (the default)
+     */
+    static boolean isFlattened() {
+        return isFlattened;
+    }
+
+    /**
+     * @return the screenshot file for the Uri, if it is one that can have a layer next to it
+     */
+    @Nullable
+    static File getScreenshotFile(@Nullable Uri screenshotUri) {
+        if (screenshotUri == null || !ContentResolver.SCHEME_FILE.equals(screenshotUri.getScheme())) {
+            return null;
+        }
+        return new File(screenshotUri.getPath());
+    }
+
+    /**
+     * Replaces the layer of the screenshot, or removes it if there are no strokes.
+     *
+     * @return true if the layer was written
+     */
+    @WorkerThread
+    boolean write(@NonNull File screenshot) {
+        File strokesFile = getSidecar(screenshot, STROKES_EXTENSION);
+        File svgFile = getSidecar(screenshot, SVG_EXTENSION);
+        if (strokes.isEmpty()) {
+            delete(strokesFile);
+            delete(svgFile);
+            return true;
+        }
+
+        byte[] encoded = strokes.encode();
+        OutputStream outputStream = null;
+        File temp = new File(strokesFile.getPath() + TEMP_EXTENSION);
+        try {
+            outputStream = new FileOutputStream(temp);
+            DataOutputStream dataStream = new DataOutputStream(
+                    new BufferedOutputStream(AtRestEncryption.wrap(outputStream)));
+            outputStream = dataStream;
+            dataStream.writeInt(MAGIC);
+            dataStream.writeByte(VERSION);
+            dataStream.writeInt(imageWidth);
+            dataStream.writeInt(imageHeight);
+            dataStream.writeFloat(strokeScale);
+            dataStream.writeInt(encoded.length);
+            dataStream.write(encoded);
+            dataStream.close();
+            outputStream = null;
+            if (!temp.renameTo(strokesFile)) {
+                throw new IOException("Could not replace " + strokesFile);
+            }
+
+            temp = new File(svgFile.getPath() + TEMP_EXTENSION);
+            outputStream = new FileOutputStream(temp);
+            outputStream = new BufferedOutputStream(AtRestEncryption.wrap(outputStream));
+            outputStream.write(toSvg().getBytes(UTF_8));
+            outputStream.close();
+            outputStream = null;
+            if (!temp.renameTo(svgFile)) {
+                throw new IOException("Could not replace " + svgFile);
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write the annotation layer of " + screenshot, e);
+            delete(temp);
+            return false;
+        } finally {
+            Utils.closeQuietly(outputStream);
+        }
+    }
+
+    /**
+     * @return the layer kept next to the screenshot, or null if there is none
+     */
+    @Nullable
+    @WorkerThread
+    static AnnotationLayer read(@NonNull File screenshot) {
+        File strokesFile = getSidecar(screenshot, STROKES_EXTENSION);
+        if (!strokesFile.isFile()) {
+            return null;
+        }
+
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(strokesFile);
+            DataInputStream dataStream = new DataInputStream(
+                    new BufferedInputStream(AtRestEncryption.unwrap(inputStream)));
+            inputStream = dataStream;
+            if (dataStream.readInt() != MAGIC || dataStream.readByte() != VERSION) {
+                return null;
+            }
+            int imageWidth = dataStream.readInt();
+            int imageHeight = dataStream.readInt();
+            float strokeScale = dataStream.readFloat();
+            byte[] encoded = new byte[dataStream.readInt()];
+            dataStream.readFully(encoded);
+            if (imageWidth <= 0 || imageHeight <= 0) {
+                return null;
+            }
+            return new AnnotationLayer(StrokeBuffer.decode(encoded), imageWidth, imageHeight, strokeScale);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Could not read the annotation layer of " + screenshot, e);
+            return null;
+        } finally {
+            Utils.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * Adds the SVG of the screenshot's layer to the attachments, if there is one.
+     */
+    @WorkerThread
+    static void addAttachment(@NonNull Result result) {
+        File screenshot = getScreenshotFile(result.getScreenshotUri());
+        if (screenshot == null) {
+            return;
+        }
+        File svgFile = getSidecar(screenshot, SVG_EXTENSION);
+        if (svgFile.isFile()) {
+            result.getAttachments().add(Uri.fromFile(svgFile));
+        }
+    }
+
+    /**
+     * @return the strokes with every point mapped through the matrix
+     */
+    @NonNull
+    static StrokeBuffer map(@NonNull StrokeBuffer strokes, @NonNull Matrix matrix) {
+        StrokeBuffer mapped = new StrokeBuffer();
+        float[] point = new float[2];
+        for (int i = 0; i < strokes.size(); i++) {
+            point[0] = strokes.getX(i);
+            point[1] = strokes.getY(i);
+            matrix.mapPoints(point);
+            mapped.add(strokes.getBrush(i), strokes.isMove(i), point[0], point[1]);
+        }
+        return mapped;
+    }
+
+    /**
+     * Draws the layer over the image, which must be mutable and may be a scaled down version of
+     * the screenshot.
+     */
+    void drawOnto(@NonNull Bitmap image) {
+        Canvas canvas = new Canvas(image);
+        canvas.scale(image.getWidth() / (float) imageWidth, image.getHeight() / (float) imageHeight);
+        Paper.drawStrokes(canvas, strokes, strokeScale, null);
+    }
+
+    @NonNull
+    private String toSvg() {
+        StringBuilder svg = new StringBuilder(64 + strokes.size() * 16);
+        svg.append(String.format(Locale.US,
+                "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" viewBox=\"0 0 %d %d\">\n",
+                imageWidth, imageHeight, imageWidth, imageHeight));
+        svg.append(String.format(Locale.US,
+                "<g fill=\"none\" stroke=\"#%06X\" stroke-width=\"%.1f\" stroke-linejoin=\"round\">\n",
+                Paper.getStrokeColor(true) & 0xFFFFFF, Paper.getStrokeWidth(true) * strokeScale));
+        for (int i = 0; i < strokes.size(); i++) {
+            if (strokes.isMove(i) || i == 0) {
+                svg.append(i == 0 ? "" : "\"/>\n").append("<path d=\"M");
+            } else {
+                svg.append(" L");
+            }
+            svg.append(String.format(Locale.US, "%.1f %.1f", strokes.getX(i), strokes.getY(i)));
+        }
+        if (!strokes.isEmpty()) {
+            svg.append("\"/>\n");
+        }
+        svg.append("</g>\n</svg>\n");
+        return svg.toString();
+    }
+
+    @NonNull
+    private static File getSidecar(@NonNull File screenshot, @NonNull String extension) {
+        return new File(screenshot.getPath() + extension);
+    }
+
+    private static void delete(@NonNull File file) {
+        if (file.exists() && !file.delete()) {
+            Log.e(TAG, "Could not delete " + file);
+        }
+    }
+}
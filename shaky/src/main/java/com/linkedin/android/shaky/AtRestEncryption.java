@@ -0,0 +1,576 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.os.Build;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Optional encryption at rest for the files Shaky writes: screenshots, persisted results, outbox
+ * entries and the intermediate files of the submit path.
+ * <p/>
+ * Files are encrypted by wrapping the output stream of the normal write path, so the data is
+ * encrypted in the same pass that encodes it. The Android Keystore is only used once per process,
+ * to unwrap a data key that is kept next to the files; the files themselves are encrypted in
+ * process, in {@link #SEGMENT_SIZE} segments that each get their own AES-GCM tag. That keeps both
+ * reading and writing streaming, with one segment in memory at a time. Each file gets its own key,
+ * derived from the data key and a random salt in the file's header.
+ * <p/>
+ * An encrypted file starts with {@link #MAGIC}, the salt and a nonce prefix. The nonce of a segment
+ * is the prefix, the segment's index and whether it is the last one, so segments can't be reordered
+ * and a truncated file doesn't read as complete. The header lets {@link #unwrap(InputStream)} tell
+ * encrypted and plain files apart and read both.
+ * <p/>
+ * Requires API 23; on older versions files are written in plain text.
+ */
+final class AtRestEncryption {
+    private static final String TAG = AtRestEncryption.class.getSimpleName();
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String KEY_ALIAS = "shaky_at_rest";
+    private static final String DATA_KEY_FILE = "shaky_at_rest.key";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String KEY_DERIVATION = "HmacSHA256";
+    private static final String KEY_ALGORITHM = "AES";
+    private static final int KEY_SIZE = 256;
+    @VisibleForTesting
+    static final int TAG_LENGTH = 16;
+    private static final int SALT_LENGTH = 16;
+    private static final int NONCE_PREFIX_LENGTH = 7;
+    private static final int NONCE_LENGTH = NONCE_PREFIX_LENGTH + 5;
+    @VisibleForTesting
+    static final int SEGMENT_SIZE = 64 * 1024;
+    private static final byte[] MAGIC = {'S', 'H', 'K', (byte) 0xE2};
+    @VisibleForTesting
+    static final int HEADER_LENGTH = MAGIC.length + SALT_LENGTH + NONCE_PREFIX_LENGTH;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static volatile boolean enabled;
+    @Nullable
+    private static File dataKeyFile;
+    @Nullable
+    private static SecretKey keystoreKey;
+    @Nullable
+    private static SecretKey dataKey;
+
+    // prevent instantiation
+    private AtRestEncryption() {}
+
+    static void setEnabled(@NonNull Context context, boolean isEnabled) {
+        if (isEnabled && Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            Log.w(TAG, "Encryption at rest requires API 23, files are stored in plain text");
+        }
+        synchronized (AtRestEncryption.class) {
+            dataKeyFile = new File(context.getApplicationContext().getNoBackupFilesDir(), DATA_KEY_FILE);
+        }
+        enabled = isEnabled;
+    }
+
+    /**
+     * Replaces the Keystore key the data key is wrapped with, since the Android Keystore isn't
+     * available in unit tests.
+     */
+    @VisibleForTesting
+    static synchronized void setKeystoreKey(@Nullable SecretKey key) {
+        keystoreKey = key;
+        dataKey = null;
+    }
+
+    /**
+     * Wraps the stream so everything written to it is encrypted, if encryption is enabled. Fails
+     * rather than falling back to plain text if the key can't be used. Nothing is written past the
+     * header until a segment is full or the stream is closed.
+     */
+    @NonNull
+    static OutputStream wrap(@NonNull OutputStream outputStream) throws IOException {
+        if (!enabled || Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return outputStream;
+        }
+
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        RANDOM.nextBytes(salt);
+        RANDOM.nextBytes(noncePrefix);
+        SegmentedOutputStream encryptingStream;
+        try {
+            encryptingStream = new SegmentedOutputStream(outputStream, deriveKey(getDataKey(), salt), noncePrefix);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not set up encryption", e);
+        }
+
+        outputStream.write(MAGIC);
+        outputStream.write(salt);
+        outputStream.write(noncePrefix);
+        return encryptingStream;
+    }
+
+    /**
+     * Wraps the stream so it is decrypted while reading, if it was written encrypted. Plain streams
+     * are returned unchanged, apart from the buffering needed to look at the header.
+     */
+    @NonNull
+    static InputStream unwrap(@NonNull InputStream inputStream) throws IOException {
+        PushbackInputStream pushbackStream = new PushbackInputStream(inputStream, MAGIC.length);
+        byte[] magic = new byte[MAGIC.length];
+        int length = readFully(pushbackStream, magic, 0, magic.length);
+        if (length < MAGIC.length || !Arrays.equals(magic, MAGIC)) {
+            pushbackStream.unread(magic, 0, length);
+            return pushbackStream;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            throw new IOException("Encrypted files can't be read before API 23");
+        }
+
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        if (readFully(pushbackStream, salt, 0, SALT_LENGTH) < SALT_LENGTH
+                || readFully(pushbackStream, noncePrefix, 0, NONCE_PREFIX_LENGTH) < NONCE_PREFIX_LENGTH) {
+            throw new IOException("Truncated encryption header");
+        }
+        try {
+            return new SegmentedInputStream(pushbackStream, deriveKey(getDataKey(), salt), noncePrefix);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not set up decryption", e);
+        }
+    }
+
+    /**
+     * @return true if the file was written encrypted
+     */
+    @WorkerThread
+    static boolean isEncrypted(@NonNull File file) {
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            return isEncrypted(inputStream);
+        } catch (IOException e) {
+            return false;
+        } finally {
+            Utils.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * @return true if the stream, read from its start, was written encrypted
+     */
+    static boolean isEncrypted(@NonNull InputStream inputStream) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        return readFully(inputStream, magic, 0, magic.length) == MAGIC.length
+                && Arrays.equals(magic, MAGIC);
+    }
+
+    /**
+     * @return the size of the file's content once decrypted, which is worked out from the size of
+     * the file without reading it, or -1 if the file can't be read
+     */
+    @WorkerThread
+    static long getContentLength(@NonNull File file) {
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            return getContentLength(inputStream, file.length());
+        } catch (IOException e) {
+            return -1;
+        } finally {
+            Utils.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * @param inputStream the file, read from its start
+     * @param fileLength  the size of the file
+     * @return the size of the file's content once decrypted
+     */
+    static long getContentLength(@NonNull InputStream inputStream, long fileLength) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        if (readFully(inputStream, magic, 0, magic.length) < MAGIC.length || !Arrays.equals(magic, MAGIC)) {
+            return fileLength;
+        }
+
+        // every segment but the last is full, and the last one holds at least its tag
+        long segmentsLength = fileLength - HEADER_LENGTH;
+        long fullSegments = segmentsLength / (SEGMENT_SIZE + TAG_LENGTH);
+        long lastSegment = segmentsLength % (SEGMENT_SIZE + TAG_LENGTH);
+        return fullSegments * SEGMENT_SIZE + Math.max(lastSegment - TAG_LENGTH, 0);
+    }
+
+    /**
+     * @return a key for just one file, so nonces only have to be unique within the file
+     */
+    @NonNull
+    private static SecretKey deriveKey(@NonNull SecretKey key, @NonNull byte[] salt)
+            throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(KEY_DERIVATION);
+        mac.init(key);
+        return new SecretKeySpec(mac.doFinal(salt), KEY_ALGORITHM);
+    }
+
+    /**
+     * @return the key the files are encrypted with, which is created on first use and stored
+     * encrypted with the Keystore key
+     */
+    @NonNull
+    @RequiresApi(Build.VERSION_CODES.M)
+    private static synchronized SecretKey getDataKey() throws IOException, GeneralSecurityException {
+        if (dataKey != null) {
+            return dataKey;
+        }
+        if (dataKeyFile == null) {
+            throw new IOException("Encryption at rest was not set up");
+        }
+
+        if (dataKeyFile.isFile()) {
+            dataKey = readDataKey(dataKeyFile);
+            return dataKey;
+        }
+
+        KeyGenerator generator = KeyGenerator.getInstance(KEY_ALGORITHM);
+        generator.init(KEY_SIZE, RANDOM);
+        SecretKey key = generator.generateKey();
+        writeDataKey(dataKeyFile, key);
+        dataKey = key;
+        return dataKey;
+    }
+
+    @NonNull
+    @RequiresApi(Build.VERSION_CODES.M)
+    private static SecretKey readDataKey(@NonNull File file) throws IOException, GeneralSecurityException {
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            int ivLength = inputStream.read();
+            byte[] iv = new byte[Math.max(ivLength, 0)];
+            byte[] wrapped = new byte[KEY_SIZE / 8 + TAG_LENGTH];
+            if (ivLength <= 0
+                    || readFully(inputStream, iv, 0, ivLength) < ivLength
+                    || readFully(inputStream, wrapped, 0, wrapped.length) < wrapped.length) {
+                throw new IOException("Truncated data key: " + file);
+            }
+
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, getKeystoreKey(), new GCMParameterSpec(TAG_LENGTH * 8, iv));
+            return new SecretKeySpec(cipher.doFinal(wrapped), KEY_ALGORITHM);
+        } finally {
+            Utils.closeQuietly(inputStream);
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.M)
+    private static void writeDataKey(@NonNull File file, @NonNull SecretKey key)
+            throws IOException, GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, getKeystoreKey());
+        byte[] iv = cipher.getIV();
+        byte[] wrapped = cipher.doFinal(key.getEncoded());
+
+        // written aside and renamed, so a crash can't leave a key that files were never written with
+        File temp = new File(file.getPath() + TEMP_EXTENSION);
+        OutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(temp);
+            outputStream.write(iv.length);
+            outputStream.write(iv);
+            outputStream.write(wrapped);
+            outputStream.close();
+            outputStream = null;
+        } finally {
+            Utils.closeQuietly(outputStream);
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not store the data key: " + file);
+        }
+    }
+
+    @NonNull
+    @RequiresApi(Build.VERSION_CODES.M)
+    private static synchronized SecretKey getKeystoreKey() throws GeneralSecurityException {
+        if (keystoreKey != null) {
+            return keystoreKey;
+        }
+
+        try {
+            KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+            keyStore.load(null);
+            Key existingKey = keyStore.getKey(KEY_ALIAS, null);
+            if (existingKey instanceof SecretKey) {
+                keystoreKey = (SecretKey) existingKey;
+                return keystoreKey;
+            }
+        } catch (IOException e) {
+            throw new GeneralSecurityException("Could not load the key store", e);
+        }
+
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(KEY_ALIAS,
+                                                       KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                               .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                               .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                               .setKeySize(KEY_SIZE)
+                               .build());
+        keystoreKey = generator.generateKey();
+        return keystoreKey;
+    }
+
+    @NonNull
+    private static GCMParameterSpec getSegmentParameters(@NonNull byte[] noncePrefix, int segment, boolean isLast) {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        System.arraycopy(noncePrefix, 0, nonce, 0, NONCE_PREFIX_LENGTH);
+        nonce[NONCE_PREFIX_LENGTH] = (byte) (segment >>> 24);
+        nonce[NONCE_PREFIX_LENGTH + 1] = (byte) (segment >>> 16);
+        nonce[NONCE_PREFIX_LENGTH + 2] = (byte) (segment >>> 8);
+        nonce[NONCE_PREFIX_LENGTH + 3] = (byte) segment;
+        nonce[NONCE_PREFIX_LENGTH + 4] = (byte) (isLast ? 1 : 0);
+        return new GCMParameterSpec(TAG_LENGTH * 8, nonce);
+    }
+
+    private static int readFully(@NonNull InputStream inputStream,
+                                 @NonNull byte[] buffer,
+                                 int offset,
+                                 int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = inputStream.read(buffer, offset + total, length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Encrypts one segment at a time. A full segment is only written once more data arrives, since
+     * until then it might still be the last one.
+     */
+    private static final class SegmentedOutputStream extends OutputStream {
+        @NonNull
+        private final OutputStream outputStream;
+        @NonNull
+        private final Cipher cipher;
+        @NonNull
+        private final SecretKey key;
+        @NonNull
+        private final byte[] noncePrefix;
+        private final byte[] plaintext = new byte[SEGMENT_SIZE];
+        private final byte[] ciphertext = new byte[SEGMENT_SIZE + TAG_LENGTH];
+        private final byte[] singleByte = new byte[1];
+        private int length;
+        private int segment;
+        private boolean isClosed;
+
+        SegmentedOutputStream(@NonNull OutputStream outputStream,
+                              @NonNull SecretKey key,
+                              @NonNull byte[] noncePrefix) throws GeneralSecurityException {
+            this.outputStream = outputStream;
+            this.cipher = Cipher.getInstance(TRANSFORMATION);
+            this.key = key;
+            this.noncePrefix = noncePrefix;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            singleByte[0] = (byte) b;
+            write(singleByte, 0, 1);
+        }
+
+        @Override
+        public void write(@NonNull byte[] buffer, int offset, int count) throws IOException {
+            if (isClosed) {
+                throw new IOException("Stream closed");
+            }
+            while (count > 0) {
+                if (length == SEGMENT_SIZE) {
+                    writeSegment(false);
+                }
+                int copied = Math.min(count, SEGMENT_SIZE - length);
+                System.arraycopy(buffer, offset, plaintext, length, copied);
+                length += copied;
+                offset += copied;
+                count -= copied;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // a partial segment can only be written as the last one, so it waits for close()
+            outputStream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            try {
+                writeSegment(true);
+            } finally {
+                outputStream.close();
+            }
+        }
+
+        private void writeSegment(boolean isLast) throws IOException {
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, key, getSegmentParameters(noncePrefix, segment, isLast));
+                int written = cipher.doFinal(plaintext, 0, length, ciphertext, 0);
+                outputStream.write(ciphertext, 0, written);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Could not encrypt segment " + segment, e);
+            }
+            length = 0;
+            segment++;
+        }
+    }
+
+    /**
+     * Decrypts one segment at a time. One byte past each segment is read ahead, to know whether the
+     * segment is the last one.
+     */
+    private static final class SegmentedInputStream extends InputStream {
+        @NonNull
+        private final InputStream inputStream;
+        @NonNull
+        private final Cipher cipher;
+        @NonNull
+        private final SecretKey key;
+        @NonNull
+        private final byte[] noncePrefix;
+        private final byte[] ciphertext = new byte[SEGMENT_SIZE + TAG_LENGTH + 1];
+        private final byte[] plaintext = new byte[SEGMENT_SIZE + TAG_LENGTH];
+        private int readAhead;
+        private int position;
+        private int limit;
+        private int segment;
+        private boolean isLastRead;
+
+        SegmentedInputStream(@NonNull InputStream inputStream,
+                             @NonNull SecretKey key,
+                             @NonNull byte[] noncePrefix) throws GeneralSecurityException {
+            this.inputStream = inputStream;
+            this.cipher = Cipher.getInstance(TRANSFORMATION);
+            this.key = key;
+            this.noncePrefix = noncePrefix;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? plaintext[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int count) throws IOException {
+            if (count == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int copied = Math.min(count, limit - position);
+            System.arraycopy(plaintext, position, buffer, offset, copied);
+            position += copied;
+            return copied;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long skipped = 0;
+            while (skipped < count && fill()) {
+                int step = (int) Math.min(count - skipped, limit - position);
+                position += step;
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return limit - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+
+        /**
+         * @return true if there is plaintext to read, false at the end of the stream
+         */
+        private boolean fill() throws IOException {
+            while (position == limit) {
+                if (isLastRead) {
+                    return false;
+                }
+                readSegment();
+            }
+            return true;
+        }
+
+        private void readSegment() throws IOException {
+            int length = readAhead + readFully(inputStream, ciphertext, readAhead, ciphertext.length - readAhead);
+            boolean isLast = length < ciphertext.length;
+            int segmentLength = isLast ? length : length - 1;
+            if (segmentLength < TAG_LENGTH) {
+                throw new IOException("Truncated encrypted segment " + segment);
+            }
+
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, key, getSegmentParameters(noncePrefix, segment, isLast));
+                limit = cipher.doFinal(ciphertext, 0, segmentLength, plaintext, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Encrypted segment " + segment + " is corrupt or truncated", e);
+            }
+            position = 0;
+            segment++;
+            isLastRead = isLast;
+            if (!isLast) {
+                ciphertext[0] = ciphertext[length - 1];
+                readAhead = 1;
+            } else {
+                readAhead = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,462 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.text.format.Formatter;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Shrinks the attachments of a {@link Result} until their total size fits the delegate's
+ * {@link ShakeDelegate#getAttachmentBudgetBytes() budget}, e.g. the attachment limit of mail providers.
+ * <p/>
+ * The steps go from least to most lossy, and stop as soon as the attachments fit:
+ * <ol>
+ * <li>text attachments are gzipped</li>
+ * <li>images are re-encoded as JPEG at progressively smaller sizes and lower qualities</li>
+ * <li>text attachments are truncated, keeping the end, which is the most recent part of a log</li>
+ * <li>the largest attachments are removed, the screenshot last</li>
+ * </ol>
+ * Originals are never modified; the smaller copies are written to {@code files/shaky_budget}. Every
+ * change is described in {@link Result#getAttachmentReport()}.
+ */
+final class AttachmentBudget {
+    private static final String TAG = AttachmentBudget.class.getSimpleName();
+    private static final String DIRECTORY = "shaky_budget";
+    private static final long MAX_FILE_AGE_MS = TimeUnit.DAYS.toMillis(1);
+    private static final int MIN_TRUNCATED_BYTES = 1024;
+    private static final String[] TEXT_EXTENSIONS = {".txt", ".log", ".json", ".xml", ".csv"};
+    private static final String TRUNCATION_HEADER = "[Truncated to fit the attachment size limit]\n";
+
+    /** Image scale and JPEG quality for each step, applied to the original image. */
+    private static final float[] IMAGE_SCALES = {1f, 0.75f, 0.5f, 0.35f, 0.25f};
+    private static final int[] IMAGE_QUALITIES = {85, 80, 75, 70, 60};
+
+    private final Context context;
+    private final File directory;
+    private final long budget;
+    private final List<Attachment> attachments = new ArrayList<>();
+
+    private AttachmentBudget(@NonNull Context context, long budget) {
+        this.context = context;
+        this.directory = new File(context.getFilesDir(), DIRECTORY);
+        this.budget = budget;
+    }
+
+    /**
+     * Shrinks the attachments of the result to fit the budget, replacing their Uris with the smaller
+     * copies and adding a report of the changes to the result.
+     */
+    @WorkerThread
+    static void apply(@NonNull Context context, @NonNull Result result, long budget) {
+        if (budget <= 0) {
+            return;
+        }
+        new AttachmentBudget(context, budget).shrink(result);
+    }
+
+    @WorkerThread
+    private void shrink(@NonNull Result result) {
+        Uri screenshotUri = result.getScreenshotUri();
+        for (Uri uri : result.getAttachments()) {
+            attachments.add(new Attachment(uri, uri.equals(screenshotUri)));
+        }
+        if (fits()) {
+            return;
+        }
+
+        pruneOldFiles();
+        if (!directory.mkdirs() && !directory.exists()) {
+            Log.e(TAG, "Failed to create directory for shrunk attachments.");
+        }
+
+        if (!gzipText() && !downscaleImages() && !truncateText()) {
+            dropLargest();
+        }
+
+        ArrayList<Uri> uris = new ArrayList<>();
+        ArrayList<String> report = new ArrayList<>();
+        for (Attachment attachment : attachments) {
+            if (attachment.current != null) {
+                uris.add(attachment.current);
+            }
+            if (attachment.change != null) {
+                report.add(attachment.describe());
+            }
+            if (attachment.isScreenshot) {
+                result.setScreenshotUri(attachment.current);
+            }
+        }
+        result.setAttachments(uris);
+        result.setAttachmentReport(report);
+    }
+
+    /**
+     * @return true if the attachments fit afterwards
+     */
+    @WorkerThread
+    private boolean gzipText() {
+        for (Attachment attachment : attachments) {
+            if (attachment.isText()) {
+                File file = newFile(attachment.name + ".gz");
+                if (writeGzip(attachment.original, file, 0)) {
+                    attachment.replace(file, "compressed with gzip");
+                }
+            }
+        }
+        return fits();
+    }
+
+    /**
+     * @return true if the attachments fit afterwards
+     */
+    @WorkerThread
+    private boolean downscaleImages() {
+        for (int step = 0; step < IMAGE_SCALES.length; step++) {
+            for (Attachment attachment : attachments) {
+                if (!attachment.isImage()) {
+                    continue;
+                }
+                File file = newFile(step + "_" + stripExtension(attachment.name) + ".jpg");
+                if (writeScaledJpeg(attachment.original, file, IMAGE_SCALES[step], IMAGE_QUALITIES[step])) {
+                    attachment.replace(file, IMAGE_SCALES[step] < 1f
+                            ? "scaled to " + Math.round(IMAGE_SCALES[step] * 100) + "% and re-encoded as JPEG"
+                            : "re-encoded as JPEG");
+                }
+            }
+            if (fits()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the attachments fit afterwards
+     */
+    @WorkerThread
+    private boolean truncateText() {
+        for (Attachment attachment : sortedBySize()) {
+            if (fits()) {
+                return true;
+            }
+            if (!attachment.isText()) {
+                continue;
+            }
+
+            long target = attachment.size - (getTotalSize() - budget);
+            long keep = attachment.originalSize;
+            while (keep > MIN_TRUNCATED_BYTES) {
+                keep /= 2;
+                File file = newFile("tail_" + keep + "_" + attachment.name + ".gz");
+                if (!writeGzip(attachment.original, file, attachment.originalSize - keep)) {
+                    break;
+                }
+                if (file.length() <= target) {
+                    attachment.replace(file, "truncated to the last " + Formatter.formatShortFileSize(context, keep)
+                            + " and compressed with gzip");
+                    break;
+                }
+                delete(file);
+            }
+        }
+        return fits();
+    }
+
+    private void dropLargest() {
+        List<Attachment> candidates = sortedBySize();
+        // keep the screenshot for as long as possible
+        for (int pass = 0; pass < 2 && !fits(); pass++) {
+            for (Attachment attachment : candidates) {
+                if (fits()) {
+                    return;
+                }
+                if (attachment.current != null && (pass == 1 || !attachment.isScreenshot)) {
+                    attachment.drop();
+                }
+            }
+        }
+    }
+
+    @WorkerThread
+    private boolean writeGzip(@NonNull Uri source, @NonNull File file, long skip) {
+        InputStream inputStream = null;
+        OutputStream outputStream = null;
+        try {
+            inputStream = Utils.openInputStream(context, source);
+            outputStream = new FileOutputStream(file);
+            outputStream = new GZIPOutputStream(AtRestEncryption.wrap(outputStream));
+            byte[] buffer = new byte[8192];
+            int read;
+            if (skip > 0) {
+                // read past the start rather than skip(), which a decrypting stream may not honour
+                long skipped = 0;
+                while (skipped < skip
+                        && (read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, skip - skipped))) != -1) {
+                    skipped += read;
+                }
+                outputStream.write(TRUNCATION_HEADER.getBytes("UTF-8"));
+            }
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            outputStream.close();
+            outputStream = null;
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not compress " + source, e);
+            delete(file);
+            return false;
+        } finally {
+            Utils.closeQuietly(inputStream);
+            Utils.closeQuietly(outputStream);
+        }
+    }
+
+    @WorkerThread
+    private boolean writeScaledJpeg(@NonNull Uri source, @NonNull File file, float scale, int quality) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decode(source, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return false;
+        }
+
+        int targetWidth = Math.max(1, Math.round(options.outWidth * scale));
+        int targetHeight = Math.max(1, Math.round(options.outHeight * scale));
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = 1;
+        while (options.outWidth / (options.inSampleSize * 2) >= targetWidth
+                && options.outHeight / (options.inSampleSize * 2) >= targetHeight) {
+            options.inSampleSize *= 2;
+        }
+
+        Bitmap bitmap = decode(source, options);
+        if (bitmap == null) {
+            return false;
+        }
+        if (bitmap.getWidth() != targetWidth || bitmap.getHeight() != targetHeight) {
+            Bitmap scaled = Bitmap.createScaledBitmap(bitmap, targetWidth, targetHeight, true);
+            if (scaled != bitmap) {
+                bitmap.recycle();
+                bitmap = scaled;
+            }
+        }
+
+        try {
+            return Utils.writeBitmapToFile(bitmap, file, Bitmap.CompressFormat.JPEG, quality, null) != null;
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    @Nullable
+    @WorkerThread
+    private Bitmap decode(@NonNull Uri source, @NonNull BitmapFactory.Options options) {
+        InputStream inputStream = null;
+        try {
+            inputStream = Utils.openInputStream(context, source);
+            return BitmapFactory.decodeStream(inputStream, null, options);
+        } catch (IOException | OutOfMemoryError e) {
+            Log.e(TAG, "Could not decode " + source, e);
+            return null;
+        } finally {
+            Utils.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * @return the size of the content, counted by reading it, for providers that don't report it
+     */
+    @WorkerThread
+    private long measure(@NonNull Uri source) {
+        InputStream inputStream = null;
+        try {
+            inputStream = Utils.openInputStream(context, source);
+            byte[] buffer = new byte[8192];
+            long size = 0;
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                size += read;
+            }
+            return size;
+        } catch (IOException e) {
+            // it can't be sent either, so it is left for the delegate to deal with
+            Log.e(TAG, "Could not read " + source, e);
+            return 0;
+        } finally {
+            Utils.closeQuietly(inputStream);
+        }
+    }
+
+    private boolean fits() {
+        return getTotalSize() <= budget;
+    }
+
+    private long getTotalSize() {
+        long total = 0;
+        for (Attachment attachment : attachments) {
+            total += attachment.size;
+        }
+        return total;
+    }
+
+    @NonNull
+    private List<Attachment> sortedBySize() {
+        List<Attachment> sorted = new ArrayList<>(attachments);
+        Collections.sort(sorted, new Comparator<Attachment>() {
+            @Override
+            public int compare(Attachment first, Attachment second) {
+                return Long.compare(second.size, first.size);
+            }
+        });
+        return sorted;
+    }
+
+    @NonNull
+    private File newFile(@NonNull String name) {
+        return new File(directory, System.currentTimeMillis() + "_" + name);
+    }
+
+    @WorkerThread
+    private void pruneOldFiles() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            if (now - file.lastModified() > MAX_FILE_AGE_MS) {
+                delete(file);
+            }
+        }
+    }
+
+    @NonNull
+    private static String stripExtension(@NonNull String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static void delete(@NonNull File file) {
+        if (file.exists() && !file.delete()) {
+            Log.e(TAG, "Could not delete " + file);
+        }
+    }
+
+    private final class Attachment {
+        final Uri original;
+        final boolean isScreenshot;
+        final String name;
+        final String mimeType;
+        final long originalSize;
+
+        @Nullable
+        Uri current;
+        @Nullable
+        File replacement;
+        long size;
+        @Nullable
+        String change;
+
+        Attachment(@NonNull Uri original, boolean isScreenshot) {
+            this.original = original;
+            this.isScreenshot = isScreenshot;
+            this.name = Utils.getDisplayName(context, original).replaceAll("[^A-Za-z0-9._-]", "_");
+            this.mimeType = Utils.getMimeType(context, original);
+            long knownSize = Utils.getSize(context, original);
+            this.originalSize = knownSize >= 0 ? knownSize : measure(original);
+            this.current = original;
+            this.size = originalSize;
+        }
+
+        boolean isImage() {
+            return mimeType.startsWith("image/");
+        }
+
+        boolean isText() {
+            if (mimeType.startsWith("text/")
+                    || mimeType.equals("application/json")
+                    || mimeType.equals("application/xml")) {
+                return true;
+            }
+            // not every Android version maps these, and logs are the most common text attachment
+            String lowerCaseName = name.toLowerCase(Locale.US);
+            for (String extension : TEXT_EXTENSIONS) {
+                if (lowerCaseName.endsWith(extension)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Uses the file instead of the current version, if it is smaller.
+         */
+        void replace(@NonNull File file, @NonNull String description) {
+            if (file.length() >= size) {
+                delete(file);
+                return;
+            }
+            if (replacement != null) {
+                delete(replacement);
+            }
+            replacement = file;
+            current = Uri.fromFile(file);
+            size = file.length();
+            change = description;
+        }
+
+        void drop() {
+            if (replacement != null) {
+                delete(replacement);
+                replacement = null;
+            }
+            current = null;
+            size = 0;
+            change = "removed";
+        }
+
+        @NonNull
+        String describe() {
+            String before = Formatter.formatShortFileSize(context, originalSize);
+            if (current == null) {
+                return name + ": " + change + " (" + before + ")";
+            }
+            return name + ": " + change + " (" + before + " to " + Formatter.formatShortFileSize(context, size) + ")";
+        }
+    }
+}
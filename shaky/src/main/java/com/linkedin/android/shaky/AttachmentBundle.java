@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packs all attachments of a {@link Result} and a {@code manifest.json} of its fields into a single
+ * ZIP file, for delegates that {@link ShakeDelegate#shouldBundleAttachments() bundle attachments}.
+ * <p/>
+ * The ZIP is written in one pass, streaming each attachment into it. Formats that are already
+ * compressed, like PNG and JPEG screenshots, are stored at deflate level 0 instead of being
+ * compressed again; text and other data is deflated.
+ */
+final class AttachmentBundle {
+    private static final String TAG = AttachmentBundle.class.getSimpleName();
+    private static final String DIRECTORY = "shaky_bundles";
+    private static final String MANIFEST = "manifest.json";
+    private static final long MAX_FILE_AGE_MS = TimeUnit.DAYS.toMillis(1);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String[] COMPRESSED_EXTENSIONS = {
+            ".png", ".jpg", ".jpeg", ".webp", ".gif", ".mp4", ".webm", ".zip", ".gz", ".apk"
+    };
+
+    // prevent instantiation
+    private AttachmentBundle() {}
+
+    /**
+     * Replaces the attachments of the result with a single ZIP containing all of them. Leaves the
+     * result unchanged if there are no attachments or the ZIP can't be written.
+     */
+    @WorkerThread
+    static void apply(@NonNull Context context, @NonNull Result result) {
+        if (result.getAttachments().isEmpty()) {
+            return;
+        }
+
+        File directory = new File(context.getFilesDir(), DIRECTORY);
+        pruneOldFiles(directory);
+        if (!directory.mkdirs() && !directory.exists()) {
+            Log.e(TAG, "Failed to create directory for attachment bundles.");
+            return;
+        }
+
+        File file = new File(directory, "feedback_" + System.currentTimeMillis() + ".zip");
+        try {
+            write(context, result, file);
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Could not bundle attachments, sending them separately", e);
+            if (file.exists() && !file.delete()) {
+                Log.e(TAG, "Could not delete partial bundle: " + file);
+            }
+            return;
+        }
+
+        ArrayList<Uri> attachments = new ArrayList<>();
+        attachments.add(Uri.fromFile(file));
+        result.setAttachments(attachments);
+    }
+
+    @WorkerThread
+    private static void write(@NonNull Context context,
+                              @NonNull Result result,
+                              @NonNull File file) throws IOException, JSONException {
+        Uri screenshotUri = result.getScreenshotUri();
+        Set<String> names = new HashSet<>();
+        JSONArray manifestAttachments = new JSONArray();
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        OutputStream fileStream = new FileOutputStream(file);
+        ZipOutputStream zipStream;
+        try {
+            zipStream = new ZipOutputStream(new BufferedOutputStream(AtRestEncryption.wrap(fileStream), BUFFER_SIZE));
+        } catch (IOException e) {
+            Utils.closeQuietly(fileStream);
+            throw e;
+        }
+        try {
+            for (Uri attachment : result.getAttachments()) {
+                String name = getUniqueName(Utils.getDisplayName(context, attachment), names);
+                String mimeType = Utils.getMimeType(context, attachment);
+
+                zipStream.setLevel(isCompressed(name, mimeType) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+                zipStream.putNextEntry(new ZipEntry(name));
+                long size = 0;
+                InputStream inputStream = Utils.openInputStream(context, attachment);
+                try {
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        zipStream.write(buffer, 0, read);
+                        size += read;
+                    }
+                } finally {
+                    Utils.closeQuietly(inputStream);
+                }
+                zipStream.closeEntry();
+
+                manifestAttachments.put(new JSONObject()
+                        .put("name", name)
+                        .put("mimeType", mimeType)
+                        .put("size", size)
+                        .put("screenshot", attachment.equals(screenshotUri)));
+            }
+
+            // the manifest goes last, since it lists the entry names and sizes
+            JSONObject manifest = new JSONObject()
+                    .putOpt("title", result.getTitle())
+                    .putOpt("message", result.getMessage())
+                    .putOpt("subcategory", result.getSubcategory())
+                    .put("data", new JSONObject(result.getCustomDataAsStrings()))
+                    .put("attachmentReport", new JSONArray(result.getAttachmentReport()))
+                    .put("attachments", manifestAttachments);
+            zipStream.setLevel(Deflater.DEFAULT_COMPRESSION);
+            zipStream.putNextEntry(new ZipEntry(getUniqueName(MANIFEST, names)));
+            zipStream.write(manifest.toString(2).getBytes("UTF-8"));
+            zipStream.closeEntry();
+        } finally {
+            zipStream.close();
+        }
+    }
+
+    private static boolean isCompressed(@NonNull String name, @NonNull String mimeType) {
+        if (mimeType.startsWith("image/") || mimeType.startsWith("video/") || mimeType.startsWith("audio/")
+                || mimeType.equals("application/zip") || mimeType.equals("application/gzip")) {
+            return true;
+        }
+        String lowerCaseName = name.toLowerCase(Locale.US);
+        for (String extension : COMPRESSED_EXTENSIONS) {
+            if (lowerCaseName.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    private static String getUniqueName(@NonNull String name, @NonNull Set<String> names) {
+        String unique = name.replace('/', '_');
+        for (int i = 1; !names.add(unique); i++) {
+            unique = i + "_" + name.replace('/', '_');
+        }
+        return unique;
+    }
+
+    @WorkerThread
+    private static void pruneOldFiles(@NonNull File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            if (now - file.lastModified() > MAX_FILE_AGE_MS && !file.delete()) {
+                Log.e(TAG, "Could not delete old bundle: " + file);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A few mutable bitmaps kept around after use, so that decoding the next screenshot can reuse
+ * their memory through {@link android.graphics.BitmapFactory.Options#inBitmap}.
+ * <p/>
+ * Only meant for bitmaps about the size of the screen, and capped at {@link #MAX_BYTES} in total.
+ * {@link FeedbackActivity} empties it when the feedback flow ends or memory runs low, so it doesn't
+ * hold on to memory for the rest of the host app's life.
+ */
+final class BitmapPool {
+    private static final long MAX_BYTES = 24 * 1024 * 1024;
+
+    private static final List<Bitmap> POOL = new ArrayList<>();
+    private static long pooledBytes;
+
+    // prevent instantiation
+    private BitmapPool() {}
+
+    /**
+     * @return a pooled ARGB_8888 bitmap of at least the given size in bytes, or null if there is
+     * none. The caller owns it from now on.
+     */
+    @Nullable
+    static Bitmap obtain(int byteCount) {
+        synchronized (POOL) {
+            for (int i = 0; i < POOL.size(); i++) {
+                Bitmap bitmap = POOL.get(i);
+                if (bitmap.getAllocationByteCount() >= byteCount) {
+                    pooledBytes -= bitmap.getAllocationByteCount();
+                    return POOL.remove(i);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Offers a bitmap for reuse. It must no longer be drawn or referenced by the caller.
+     */
+    static void release(@NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            return;
+        }
+        int byteCount = bitmap.getAllocationByteCount();
+        if (byteCount > MAX_BYTES) {
+            return;
+        }
+        synchronized (POOL) {
+            while (pooledBytes + byteCount > MAX_BYTES) {
+                // keep the larger bitmaps, they can stand in for more requests
+                Bitmap smallest = POOL.get(0);
+                for (Bitmap pooled : POOL) {
+                    if (pooled.getAllocationByteCount() < smallest.getAllocationByteCount()) {
+                        smallest = pooled;
+                    }
+                }
+                if (smallest.getAllocationByteCount() >= byteCount) {
+                    return;
+                }
+                POOL.remove(smallest);
+                pooledBytes -= smallest.getAllocationByteCount();
+            }
+            POOL.add(bitmap);
+            pooledBytes += byteCount;
+        }
+    }
+
+    /**
+     * Lets go of all the pooled bitmaps.
+     */
+    static void clear() {
+        synchronized (POOL) {
+            POOL.clear();
+            pooledBytes = 0;
+        }
+    }
+}
@@ -15,35 +15,93 @@
  */
 package com.linkedin.android.shaky;
 
+import android.app.Activity;
 import android.app.Dialog;
 import android.app.DialogFragment;
 import android.app.ProgressDialog;
+import android.content.DialogInterface;
+import android.content.Intent;
 import android.os.Bundle;
 import androidx.annotation.NonNull;
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
 /**
  * Dialog to show while the app is collecting data. Used with {@link CollectDataTask}.
+ * <p/>
+ * Shows the current {@link CollectDataTask.Stage} and lets the user cancel the collection, either
+ * with the cancel button or the back button.
  */
 public class CollectDataDialog extends DialogFragment {
 
+    static final String ACTION_COLLECTION_CANCELLED_BY_USER = "CollectionCancelledByUser";
+
     @NonNull
     @Override
     public Dialog onCreateDialog(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        ProgressDialog dialog = new ProgressDialog(getActivity()) {
-            @Override
-            public void onBackPressed() {
-                // don't call super, so the back button won't close the dialog
-            }
-        };
+        final ProgressDialog dialog = new ProgressDialog(getActivity());
         dialog.setTitle(R.string.shaky_collecting_feedback);
-        dialog.setCancelable(false);
+        dialog.setMessage(getString(R.string.shaky_collecting_capture));
         dialog.setCanceledOnTouchOutside(false);
         dialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
         dialog.setIndeterminate(true);
         dialog.setProgressPercentFormat(null);
         dialog.setProgressNumberFormat(null);
+        dialog.setButton(DialogInterface.BUTTON_NEGATIVE, getString(R.string.shaky_collecting_cancel),
+                new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int which) {
+                        dialog.cancel();
+                    }
+                });
         return dialog;
     }
+
+    @Override
+    public void onCancel(DialogInterface dialog) {
+        super.onCancel(dialog);
+
+        Activity activity = getActivity();
+        if (activity != null) {
+            Intent intent = new Intent(ACTION_COLLECTION_CANCELLED_BY_USER);
+            LocalBroadcastManager.getInstance(activity).sendBroadcast(intent);
+        }
+    }
+
+    /**
+     * Updates the dialog to show the given stage of the collection.
+     *
+     * @see CollectDataTask.Callback#onProgress(int, int, int)
+     */
+    void setProgress(@CollectDataTask.Stage int stage, int current, int total) {
+        ProgressDialog dialog = (ProgressDialog) getDialog();
+        if (dialog == null) {
+            return;
+        }
+
+        switch (stage) {
+            case CollectDataTask.STAGE_ENCODE:
+                // one step per screenshot, plus one for collectData
+                dialog.setIndeterminate(false);
+                dialog.setMax(total + 1);
+                dialog.setProgress(current - 1);
+                dialog.setMessage(getString(R.string.shaky_collecting_encode, current, total));
+                break;
+            case CollectDataTask.STAGE_COLLECT:
+                if (dialog.isIndeterminate()) {
+                    // there were no screenshots to save
+                    dialog.setIndeterminate(false);
+                    dialog.setMax(1);
+                }
+                dialog.setProgress(dialog.getMax() - 1);
+                dialog.setMessage(getString(R.string.shaky_collecting_data));
+                break;
+            case CollectDataTask.STAGE_CAPTURE:
+            default:
+                dialog.setIndeterminate(true);
+                dialog.setMessage(getString(R.string.shaky_collecting_capture));
+                break;
+        }
+    }
 }
@@ -20,34 +20,108 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.AsyncTask;
+import android.os.CancellationSignal;
+import androidx.annotation.IntDef;
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 import android.util.Log;
 
 import java.io.File;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Background task to collect user data. Used with {@link CollectDataDialog}.
+ * <p/>
+ * Progress is reported per stage through {@link Callback#onProgress(int, int, int)}, and the task
+ * can be stopped mid-way with {@link #cancelCollection()}.
  */
-class CollectDataTask extends AsyncTask<Bitmap, Void, Result> {
+class CollectDataTask extends AsyncTask<Bitmap, Integer, Result> {
+
+    @IntDef({STAGE_CAPTURE, STAGE_ENCODE, STAGE_COLLECT})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface Stage {}
+
+    /**
+     * The screen is being captured. This happens on the main thread before the task is executed.
+     */
+    static final int STAGE_CAPTURE = 0;
+    /**
+     * Screenshot N of M is being written to disk.
+     */
+    static final int STAGE_ENCODE = 1;
+    /**
+     * {@link ShakeDelegate#collectData} and the {@link DataCollector}s are running.
+     */
+    static final int STAGE_COLLECT = 2;
 
     private static final String TAG = CollectDataTask.class.getSimpleName();
 
     private static final String SCREENSHOT_DIRECTORY = "/screenshots";
+    private static final String RESERVED_SCREENSHOT_PREFIX = "screenshot";
 
     private final Activity activity;
+    private final ActivitySnapshot snapshot;
     private final ShakeDelegate delegate;
     private final Callback callback;
+    private final CancellationSignal cancellationSignal = new CancellationSignal();
+    private final List<Future<Result>> collectorFutures = new ArrayList<>();
+    @Nullable
+    private File reservedScreenshotFile;
 
     CollectDataTask(@NonNull Activity activity,
+                    @NonNull ActivitySnapshot snapshot,
                     @NonNull ShakeDelegate delegate,
                     @NonNull Callback callback) {
         this.activity = activity;
+        this.snapshot = snapshot;
         this.delegate = delegate;
         this.callback = callback;
     }
 
+    /**
+     * Picks the file that the first screenshot will be written to, so that its Uri can be handed
+     * out before the task has run. Must be called before the task is executed.
+     *
+     * @return the Uri the first screenshot will be written to, or null if there is no storage
+     */
+    @Nullable
+    @MainThread
+    Uri reserveScreenshotUri() {
+        String screenshotDirectoryRoot = getScreenshotDirectoryRoot(activity);
+        if (screenshotDirectoryRoot == null) {
+            return null;
+        }
+        reservedScreenshotFile = new File(screenshotDirectoryRoot,
+                Utils.createUniqueFilename(RESERVED_SCREENSHOT_PREFIX));
+        return Uri.fromFile(reservedScreenshotFile);
+    }
+
+    /**
+     * Stops the collection. An encode that is in flight is aborted at its next write, and the
+     * threads running {@link ShakeDelegate#collectData} and the {@link DataCollector}s are
+     * interrupted.
+     * {@link Callback#onDataReady(Result)} will not be called after this.
+     */
+    @MainThread
+    void cancelCollection() {
+        cancellationSignal.cancel();
+        cancel(true);
+        synchronized (collectorFutures) {
+            for (Future<Result> future : collectorFutures) {
+                future.cancel(true);
+            }
+        }
+    }
+
     @Override
     protected Result doInBackground(Bitmap... params) {
         String screenshotDirectoryRoot = getScreenshotDirectoryRoot(activity);
@@ -57,8 +131,9 @@ class CollectDataTask extends AsyncTask<Bitmap, Void, Result> {
 
         File screenshotDirectory = new File(screenshotDirectoryRoot);
 
-        // delete any old screenshots that we may have left lying around
-        if (screenshotDirectory.exists()) {
+        // delete any old screenshots that we may have left lying around, unless an unsent draft
+        // may still refer to them
+        if (screenshotDirectory.exists() && !DraftStore.hasDraft()) {
             File[] oldScreenshots = screenshotDirectory.listFiles();
             for (File oldScreenshot : oldScreenshots) {
                 if (!oldScreenshot.delete()) {
@@ -72,9 +147,19 @@ class CollectDataTask extends AsyncTask<Bitmap, Void, Result> {
         // Process all bitmaps
         if (params != null && params.length > 0) {
             for (int i = 0; i < params.length; i++) {
+                if (isCancelled()) {
+                    return null;
+                }
+
                 Bitmap bitmap = params[i];
                 if (bitmap != null) {
-                    File screenshotFile = Utils.writeBitmapToDirectory(bitmap, screenshotDirectory);
+                    publishProgress(STAGE_ENCODE, i + 1, params.length);
+                    File screenshotFile;
+                    if (i == 0 && reservedScreenshotFile != null) {
+                        screenshotFile = writeReservedScreenshot(bitmap, screenshotDirectory);
+                    } else {
+                        screenshotFile = Utils.writeBitmapToDirectory(bitmap, screenshotDirectory, cancellationSignal);
+                    }
 
                     if (screenshotFile != null) {
                         Uri screenshotUri = Uri.fromFile(screenshotFile);
@@ -86,7 +171,7 @@ class CollectDataTask extends AsyncTask<Bitmap, Void, Result> {
                             // Subsequent screenshots (dialogs/bottom sheets) are only attachments
                             result.getAttachments().add(screenshotUri);
                         }
-                    } else {
+                    } else if (!isCancelled()) {
                         Log.e(TAG, "Failed to write bitmap " + i + " to file");
                     }
                 }
@@ -94,10 +179,86 @@ class CollectDataTask extends AsyncTask<Bitmap, Void, Result> {
             Log.d(TAG, "Saved " + result.getAttachments().size() + " screenshot(s) total");
         }
 
+        if (isCancelled()) {
+            return null;
+        }
+        publishProgress(STAGE_COLLECT, 0, 0);
+        submitCollectors();
         delegate.collectData(activity, result);
+        return mergeCollectorResults(result);
+    }
+
+    @Nullable
+    @WorkerThread
+    private File writeReservedScreenshot(@NonNull Bitmap bitmap, @NonNull File screenshotDirectory) {
+        if (!screenshotDirectory.mkdirs() && !screenshotDirectory.exists()) {
+            Log.e(TAG, "Failed to create directory for bitmap.");
+            return null;
+        }
+        return Utils.writeBitmapToFile(bitmap, reservedScreenshotFile, cancellationSignal);
+    }
+
+    /**
+     * Starts every {@link DataCollector} on the {@link ShakyExecutor}, each with its own
+     * {@link Result}.
+     */
+    @WorkerThread
+    private void submitCollectors() {
+        for (final DataCollector collector : delegate.getDataCollectors()) {
+            Future<Result> future = ShakyExecutor.get().submit(new Callable<Result>() {
+                @Override
+                public Result call() {
+                    Result collectorResult = new Result();
+                    collector.collect(snapshot, collectorResult);
+                    return collectorResult;
+                }
+            });
+            synchronized (collectorFutures) {
+                collectorFutures.add(future);
+            }
+            if (isCancelled()) {
+                // cancelCollection may have missed this future
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Waits for the collectors to finish and merges their results, in order, into the given one.
+     * A collector that fails is logged and skipped.
+     *
+     * @return the merged result, or null if the task was cancelled while waiting
+     */
+    @Nullable
+    @WorkerThread
+    private Result mergeCollectorResults(@NonNull Result result) {
+        List<Future<Result>> futures;
+        synchronized (collectorFutures) {
+            futures = new ArrayList<>(collectorFutures);
+        }
+
+        for (Future<Result> future : futures) {
+            try {
+                result.merge(future.get());
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Data collector failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (CancellationException e) {
+                return null;
+            }
+        }
         return result;
     }
 
+    @Override
+    protected void onProgressUpdate(Integer... values) {
+        super.onProgressUpdate(values);
+
+        callback.onProgress(values[0], values[1], values[2]);
+    }
+
     @Override
     protected void onPostExecute(Result result) {
         super.onPostExecute(result);
@@ -116,6 +277,16 @@ class CollectDataTask extends AsyncTask<Bitmap, Void, Result> {
     }
 
     interface Callback {
+        /**
+         * Called on the main thread whenever the task moves to a new stage.
+         *
+         * @param stage   the current {@link Stage}
+         * @param current for {@link #STAGE_ENCODE}, the 1-based index of the screenshot being
+         *                written, 0 otherwise
+         * @param total   for {@link #STAGE_ENCODE}, the number of screenshots, 0 otherwise
+         */
+        void onProgress(@Stage int stage, int current, int total);
+
         void onDataReady(@Nullable Result result);
     }
 }
@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+/**
+ * Collects extra debug information to include in a feedback submission.
+ * <p/>
+ * Collectors returned from {@link ShakeDelegate#getDataCollectors()} run in parallel on background
+ * threads. Each one writes into its own {@link Result}, and the results are merged in the order the
+ * collectors were returned, so implementations don't need any synchronization between each other.
+ * Collectors must not touch the UI; everything they need from the current screen is available on
+ * the {@link ActivitySnapshot}.
+ */
+public interface DataCollector {
+
+    /**
+     * Called from a background thread during the feedback collection flow.
+     *
+     * @param snapshot state of the activity at the time the flow was started
+     * @param result   the result to add data and attachments to
+     */
+    @WorkerThread
+    void collect(@NonNull ActivitySnapshot snapshot, @NonNull Result result);
+}
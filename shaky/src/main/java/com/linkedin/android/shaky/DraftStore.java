@@ -0,0 +1,352 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps a draft of the feedback being written in {@link FeedbackActivity} on disk, so it survives
+ * the process dying, and offers it for restoring the next time the activity is opened.
+ * <p/>
+ * Edits only update the in-memory draft and (re)schedule a save {@link #SAVE_DELAY_MS} later, so
+ * typing never waits for the disk. The save takes a snapshot on the main thread and writes it on a
+ * background thread in a small binary format, to a temporary file that is then renamed over the
+ * draft. Screenshots are only referenced by Uri, never copied or rewritten.
+ */
+final class DraftStore {
+    private static final String TAG = DraftStore.class.getSimpleName();
+    private static final String FILE_NAME = "shaky_draft";
+    private static final String TEMP_FILE_NAME = "shaky_draft.tmp";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAGIC = 0x53484446;
+    private static final int VERSION = 3;
+    private static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(1);
+    private static final long PRELOAD_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(5);
+
+    static final long SAVE_DELAY_MS = 500;
+
+    private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+    private static final Object WRITE_LOCK = new Object();
+    private static final AtomicReference<Draft> PENDING_WRITE = new AtomicReference<>();
+    private static final CountDownLatch PRELOADED = new CountDownLatch(1);
+
+    @Nullable
+    private static Context appContext;
+    @Nullable
+    private static volatile Draft current;
+    @Nullable
+    private static volatile Draft restorable;
+
+    private static final Runnable SAVE = new Runnable() {
+        @Override
+        public void run() {
+            if (current == null || appContext == null) {
+                return;
+            }
+            final File directory = appContext.getFilesDir();
+            PENDING_WRITE.set(current.snapshot());
+            ShakyExecutor.get().execute(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (WRITE_LOCK) {
+                        // a later save may already have written a newer snapshot
+                        Draft draft = PENDING_WRITE.getAndSet(null);
+                        if (draft != null) {
+                            write(draft, directory);
+                        }
+                    }
+                }
+            });
+        }
+    };
+
+    // prevent instantiation
+    private DraftStore() {}
+
+    /**
+     * Reads the draft left behind by an earlier process, if any, so it can be restored without
+     * touching the disk on the main thread.
+     */
+    @WorkerThread
+    static void preload(@NonNull Context context) {
+        try {
+            Draft draft;
+            synchronized (WRITE_LOCK) {
+                draft = read(context.getFilesDir());
+            }
+            if (draft == null) {
+                return;
+            }
+            if (System.currentTimeMillis() - draft.savedAtMillis > MAX_AGE_MS) {
+                delete(context.getFilesDir());
+                return;
+            }
+
+            // the screenshot and collected data can only be reused together
+            draft.canRestoreAttachments = ResultRegistry.exists(context, draft.resultToken)
+                    && (draft.screenshotUri == null || new File(draft.screenshotUri.getPath()).isFile());
+            restorable = draft;
+        } finally {
+            PRELOADED.countDown();
+        }
+    }
+
+    /**
+     * Waits for {@link #preload} to finish first, since until then a draft on disk is unknown.
+     *
+     * @return true if there may be a draft, in which case old screenshots must be kept since the
+     * draft may refer to them
+     */
+    @WorkerThread
+    static boolean hasDraft() {
+        try {
+            if (!PRELOADED.await(PRELOAD_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+        return restorable != null || current != null;
+    }
+
+    /**
+     * Removes and returns the draft left behind by an earlier process.
+     */
+    @Nullable
+    @MainThread
+    static Draft takeRestorable() {
+        Draft draft = restorable;
+        restorable = null;
+        return draft;
+    }
+
+    /**
+     * Starts tracking a new draft, replacing the one on disk at the next save.
+     */
+    @NonNull
+    @MainThread
+    static Draft begin(@NonNull Context context) {
+        appContext = context.getApplicationContext();
+        current = new Draft();
+        return current;
+    }
+
+    /**
+     * @return the draft being edited, or null if there is none (e.g. in the edit screenshot flow)
+     */
+    @Nullable
+    @MainThread
+    static Draft getCurrent() {
+        return current;
+    }
+
+    /**
+     * Schedules a save of the current draft, replacing any save that hasn't started yet.
+     */
+    @MainThread
+    static void onChanged() {
+        if (current == null) {
+            return;
+        }
+        HANDLER.removeCallbacks(SAVE);
+        HANDLER.postDelayed(SAVE, SAVE_DELAY_MS);
+    }
+
+    /**
+     * Stops tracking the current draft and deletes it from disk, e.g. because it was sent or
+     * deliberately abandoned.
+     */
+    @MainThread
+    static void clear(@NonNull Context context) {
+        HANDLER.removeCallbacks(SAVE);
+        current = null;
+        restorable = null;
+        final File directory = context.getFilesDir();
+        ShakyExecutor.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (WRITE_LOCK) {
+                    PENDING_WRITE.set(null);
+                    delete(directory);
+                }
+            }
+        });
+    }
+
+    @VisibleForTesting
+    @WorkerThread
+    static void write(@NonNull Draft draft, @NonNull File directory) {
+        File temp = new File(directory, TEMP_FILE_NAME);
+        OutputStream fileStream = null;
+        try {
+            fileStream = new FileOutputStream(temp);
+            DataOutputStream outputStream = new DataOutputStream(
+                    new BufferedOutputStream(AtRestEncryption.wrap(fileStream)));
+            fileStream = outputStream;
+            outputStream.writeInt(MAGIC);
+            outputStream.writeByte(VERSION);
+            outputStream.writeLong(draft.savedAtMillis);
+            outputStream.writeInt(draft.feedbackType);
+            writeString(outputStream, draft.screenshotUri != null ? draft.screenshotUri.toString() : null);
+            writeString(outputStream, draft.resultToken);
+            writeString(outputStream, draft.message != null ? draft.message.toString() : null);
+            writeString(outputStream, draft.subcategory);
+            byte[] annotations = draft.annotations != null ? draft.annotations : new byte[0];
+            outputStream.writeInt(annotations.length);
+            outputStream.write(annotations);
+            outputStream.close();
+            fileStream = null;
+
+            if (!temp.renameTo(new File(directory, FILE_NAME))) {
+                Log.e(TAG, "Could not replace the draft");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not save the draft", e);
+        } finally {
+            Utils.closeQuietly(fileStream);
+        }
+    }
+
+    @Nullable
+    @WorkerThread
+    private static Draft read(@NonNull File directory) {
+        File file = new File(directory, FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        InputStream fileStream = null;
+        try {
+            fileStream = new FileInputStream(file);
+            DataInputStream inputStream = new DataInputStream(
+                    new BufferedInputStream(AtRestEncryption.unwrap(fileStream)));
+            fileStream = inputStream;
+            if (inputStream.readInt() != MAGIC || inputStream.readByte() != VERSION) {
+                return null;
+            }
+
+            Draft draft = new Draft();
+            draft.savedAtMillis = inputStream.readLong();
+            draft.feedbackType = inputStream.readInt();
+            String screenshotUri = readString(inputStream);
+            draft.screenshotUri = screenshotUri != null ? Uri.parse(screenshotUri) : null;
+            draft.resultToken = readString(inputStream);
+            draft.message = readString(inputStream);
+            draft.subcategory = readString(inputStream);
+            byte[] annotations = new byte[inputStream.readInt()];
+            inputStream.readFully(annotations);
+            draft.annotations = annotations.length > 0 ? annotations : null;
+            return draft;
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Could not read the draft", e);
+            return null;
+        } finally {
+            Utils.closeQuietly(fileStream);
+        }
+    }
+
+    private static void writeString(@NonNull DataOutputStream outputStream, @Nullable String value) throws IOException {
+        // not writeUTF, which is limited to 64 KB
+        if (value == null) {
+            outputStream.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(@NonNull DataInputStream inputStream) throws IOException {
+        int length = inputStream.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        inputStream.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    @WorkerThread
+    private static void delete(@NonNull File directory) {
+        File file = new File(directory, FILE_NAME);
+        if (file.exists() && !file.delete()) {
+            Log.e(TAG, "Could not delete the draft");
+        }
+    }
+
+    /**
+     * The state of the feedback form. Only touched on the main thread, apart from snapshots.
+     */
+    static final class Draft {
+        long savedAtMillis;
+        @FeedbackItem.FeedbackType
+        int feedbackType = FeedbackItem.GENERAL;
+        @Nullable
+        Uri screenshotUri;
+        @Nullable
+        String resultToken;
+        @Nullable
+        CharSequence message;
+        @Nullable
+        String subcategory;
+        /** Unsaved {@link Paper} annotations on the screenshot, see {@link Paper#encodeAnnotations()}. */
+        @Nullable
+        byte[] annotations;
+        /** Whether the screenshot and collected data of a restored draft still exist. */
+        boolean canRestoreAttachments;
+
+        @NonNull
+        Draft snapshot() {
+            Draft snapshot = new Draft();
+            snapshot.savedAtMillis = System.currentTimeMillis();
+            snapshot.feedbackType = feedbackType;
+            snapshot.screenshotUri = screenshotUri;
+            snapshot.resultToken = resultToken;
+            // an Editable keeps changing, so take its text now
+            snapshot.message = message != null ? message.toString() : null;
+            snapshot.subcategory = subcategory;
+            snapshot.annotations = annotations;
+            return snapshot;
+        }
+    }
+}
@@ -15,47 +15,56 @@
  */
 package com.linkedin.android.shaky;
 
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.graphics.RectF;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.ProgressBar;
 import android.widget.Toast;
 
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.File;
 
 /**
  * Fragment to draw on an image.
  * Renders an image in the background and lets the user draw on it with {@link Paper}.
  *
- * TODO: on save, this overrides the given imageUri (preventing full-undo of drawing).
+ * On save, the drawing is burned into the image at the given imageUri by default. When
+ * {@link ShakeDelegate#shouldFlattenAnnotations()} is false, it is kept in an
+ * {@link AnnotationLayer} next to the image instead, so it can be edited again later.
+ *
  * TODO: if the user rotates the device while drawing, the paths are not translated.
  */
 public class DrawFragment extends Fragment {
 
     static final String ACTION_DRAWING_COMPLETE = "ActionDrawingComplete";
 
-    private static final String TAG = DrawFragment.class.getSimpleName();
-
     private static final String KEY_IMAGE_URI = "imageUri";
     private static final String KEY_THEME = "theme";
-
-    private static final int FULL_QUALITY = 100;
+    private static final String KEY_ANNOTATIONS = "annotations";
 
     private Paper paper;
+    private ProgressBar progressBar;
     private Uri imageUri;
+    /** The screenshot decoded for this view, returned to the {@link BitmapPool} with it. */
+    @Nullable
+    private Bitmap decodedBitmap;
+    private boolean hasImage;
+    private boolean isSaving;
+    /** Whether to show the drawing kept next to the screenshot, if there is one. */
+    private boolean shouldRestoreLayer;
 
     /**
      * Creates a new instance with the given image uri.
@@ -67,8 +76,18 @@ public class DrawFragment extends Fragment {
     }
 
     static DrawFragment newInstance(@Nullable Uri imageUri, @Nullable Integer theme) {
+        return newInstance(imageUri, theme, null);
+    }
+
+    /**
+     * @param annotations unsaved drawing to start with, see {@link Paper#encodeAnnotations()}
+     */
+    static DrawFragment newInstance(@Nullable Uri imageUri,
+                                    @Nullable Integer theme,
+                                    @Nullable byte[] annotations) {
         Bundle args = new Bundle();
         args.putParcelable(KEY_IMAGE_URI, imageUri);
+        args.putByteArray(KEY_ANNOTATIONS, annotations);
         if (theme != null) {
             args.putInt(KEY_THEME, theme);
         }
@@ -91,30 +110,143 @@ public class DrawFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         paper = (Paper) view.findViewById(R.id.shaky_paper);
+        progressBar = (ProgressBar) view.findViewById(R.id.shaky_draw_progress);
         imageUri = getArguments().getParcelable(KEY_IMAGE_URI);
-        if (imageUri != null) {
-            try {
-                // There seems to be an issue when using setImageUri that causes density to be chosen incorrectly
-                // See: https://code.google.com/p/android/issues/detail?id=201491. This is fixed in API 24
-                InputStream stream = getActivity().getContentResolver().openInputStream(imageUri);
-
-                Bitmap bitmap = BitmapFactory.decodeStream(stream);
-                paper.setImageBitmap(bitmap);
-            } catch (FileNotFoundException exception) {
-                Log.e("Screenshot error", exception.getMessage(), exception);
-            }
+        Bitmap pendingScreenshot = PendingFeedback.getScreenshot(imageUri);
+        if (pendingScreenshot != null) {
+            // still being written to disk
+            paper.setImageBitmap(pendingScreenshot);
+            hasImage = true;
+        } else if (imageUri != null) {
+            // There seems to be an issue when using setImageUri that causes density to be chosen incorrectly
+            // See: https://code.google.com/p/android/issues/detail?id=201491. This is fixed in API 24
+            progressBar.setVisibility(View.VISIBLE);
+            loadScreenshotWhenLaidOut(view);
         }
 
+        byte[] annotations = getArguments().getByteArray(KEY_ANNOTATIONS);
+        if (savedInstanceState == null && annotations != null) {
+            paper.decodeAnnotations(annotations);
+        }
+        shouldRestoreLayer = savedInstanceState == null && annotations == null && !AnnotationLayer.isFlattened();
+        paper.setOnChangeListener(createChangeListener());
+
         view.findViewById(R.id.shaky_button_clear).setOnClickListener(createClearClickListener());
         view.findViewById(R.id.shaky_button_save).setOnClickListener(createSaveClickListener());
         view.findViewById(R.id.shaky_button_brush).setOnClickListener(createBrushClickListener());
         view.findViewById(R.id.shaky_button_undo).setOnClickListener(createUndoClickListener());
+        view.findViewById(R.id.shaky_button_crop).setOnClickListener(createCropClickListener());
 
         if (savedInstanceState == null) {
             Toast.makeText(getActivity(), getString(R.string.shaky_draw_hint), Toast.LENGTH_SHORT).show();
         }
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+
+        paper.setImageTiles(null);
+        if (decodedBitmap != null) {
+            paper.setImageDrawable(null);
+            BitmapPool.release(decodedBitmap);
+            decodedBitmap = null;
+        }
+    }
+
+    /**
+     * Decodes the screenshot in the background, only as large as the area the paper can fill.
+     */
+    private void loadScreenshotWhenLaidOut(@NonNull final View container) {
+        if (container.getWidth() > 0 && container.getHeight() > 0) {
+            loadScreenshot(container);
+            return;
+        }
+        container.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                container.removeOnLayoutChangeListener(this);
+                loadScreenshot(container);
+            }
+        });
+    }
+
+    private void loadScreenshot(@NonNull final View container) {
+        final Context context = container.getContext().getApplicationContext();
+        final Uri uri = imageUri;
+        final int width = container.getWidth();
+        final int height = container.getHeight();
+        final Handler handler = new Handler(Looper.getMainLooper());
+        ShakyExecutor.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = Utils.decodeSampledBitmap(context, uri, width, height);
+                File screenshotFile = AnnotationLayer.getScreenshotFile(uri);
+                final AnnotationLayer layer = shouldRestoreLayer && screenshotFile != null
+                        ? AnnotationLayer.read(screenshotFile) : null;
+                // zooming in on a subsampled screenshot shows the full resolution a tile at a time
+                final ImageTiles tiles = bitmap != null
+                        && Utils.decodeBounds(context, uri).outWidth > bitmap.getWidth()
+                        ? ImageTiles.open(context, uri) : null;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onScreenshotLoaded(container, bitmap, layer, tiles);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onScreenshotLoaded(@NonNull View container,
+                                    @Nullable Bitmap bitmap,
+                                    @Nullable final AnnotationLayer layer,
+                                    @Nullable ImageTiles tiles) {
+        if (getView() != container) {
+            // the view was destroyed in the meantime
+            if (bitmap != null) {
+                BitmapPool.release(bitmap);
+            }
+            if (tiles != null) {
+                tiles.release();
+            }
+            return;
+        }
+
+        progressBar.setVisibility(View.GONE);
+        hasImage = bitmap != null;
+        decodedBitmap = bitmap;
+        paper.setImageBitmap(bitmap);
+        paper.setImageTiles(tiles);
+
+        if (bitmap != null && layer != null) {
+            // the image is only placed in the view once it has been laid out again
+            paper.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+                @Override
+                public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                           int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                    paper.removeOnLayoutChangeListener(this);
+                    restoreLayer(layer);
+                }
+            });
+        }
+    }
+
+    /**
+     * Shows the drawing saved next to the screenshot, so it can be changed and undone.
+     */
+    private void restoreLayer(@NonNull AnnotationLayer layer) {
+        Matrix imageToView = new Matrix();
+        Matrix viewToDrawable = paper.getViewToDrawableMatrix();
+        if (viewToDrawable == null || !viewToDrawable.invert(imageToView)) {
+            return;
+        }
+        imageToView.preScale(paper.getDrawable().getIntrinsicWidth() / (float) layer.imageWidth,
+                paper.getDrawable().getIntrinsicHeight() / (float) layer.imageHeight);
+        paper.setStrokes(AnnotationLayer.map(layer.strokes, imageToView));
+    }
+
     private View.OnClickListener createClearClickListener() {
         return new View.OnClickListener() {
             @Override
@@ -130,7 +262,22 @@ public class DrawFragment extends Fragment {
             public void onClick(View v) {
                 Button brushButton = (Button) v;
                 paper.toggleBrush();
-                brushButton.setText(getString(paper.isThinBrush() ? R.string.shaky_draw_brush : R.string.shaky_draw_brush_white));
+                int label = paper.isEraser() ? R.string.shaky_draw_eraser
+                        : paper.isThinBrush() ? R.string.shaky_draw_brush
+                        : paper.isPixelateBrush() ? R.string.shaky_draw_brush_pixelate
+                        : R.string.shaky_draw_brush_white;
+                brushButton.setText(getString(label));
+            }
+        };
+    }
+
+    private View.OnClickListener createCropClickListener() {
+        return new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                Button cropButton = (Button) v;
+                paper.toggleCrop();
+                cropButton.setText(getString(paper.isCropping() ? R.string.shaky_draw_crop_done : R.string.shaky_draw_crop));
             }
         };
     }
@@ -139,12 +286,28 @@ public class DrawFragment extends Fragment {
         return new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                Bitmap bitmap = paper.capture();
-                if (bitmap != null) {
-                    saveBitmap(bitmap);
+                if (imageUri != null && !hasImage) {
+                    // saving now would replace the screenshot with the empty paper
+                    return;
+                }
+                if (isSaving) {
+                    return;
+                }
+                save();
+            }
+        };
+    }
+
+    @NonNull
+    private Paper.OnChangeListener createChangeListener() {
+        return new Paper.OnChangeListener() {
+            @Override
+            public void onChange(@NonNull Paper paper) {
+                DraftStore.Draft draft = DraftStore.getCurrent();
+                if (draft != null) {
+                    draft.annotations = paper.encodeAnnotations();
+                    DraftStore.onChanged();
                 }
-                Intent intent = new Intent(ACTION_DRAWING_COMPLETE);
-                LocalBroadcastManager.getInstance(getActivity()).sendBroadcast(intent);
             }
         };
     }
@@ -158,21 +321,62 @@ public class DrawFragment extends Fragment {
         };
     }
 
-    private void saveBitmap(@NonNull Bitmap bitmap) {
-        OutputStream outputStream = null;
-        try {
-            outputStream = getActivity().getContentResolver().openOutputStream(imageUri);
-            bitmap.compress(Bitmap.CompressFormat.PNG, FULL_QUALITY, outputStream);
-        } catch (FileNotFoundException e) {
-            Log.e(TAG, "Failed to write updated bitmap to disk", e);
-        } finally {
-            try {
-                if (outputStream != null) {
-                    outputStream.close();
+    /**
+     * Draws the strokes onto the full resolution screenshot in the background, then reports the
+     * drawing as complete.
+     */
+    private void save() {
+        final Context context = getActivity().getApplicationContext();
+        Matrix viewToDrawable = paper.getViewToDrawableMatrix();
+        StrokeBuffer strokes = paper.copyStrokes();
+        RectF crop = paper.getCropRect();
+        if (imageUri == null
+                || viewToDrawable == null
+                || (strokes.isEmpty() && crop == null && AnnotationLayer.isFlattened())) {
+            onSaved(context, true);
+            return;
+        }
+
+        final Uri uri = imageUri;
+        final AnnotationCompositor compositor = new AnnotationCompositor(strokes, crop, viewToDrawable,
+                paper.getDrawable().getIntrinsicWidth(), paper.getDrawable().getIntrinsicHeight());
+        final Bitmap pendingScreenshot = PendingFeedback.getScreenshot(uri);
+        final PendingFeedback pendingFeedback = PendingFeedback.detachScreenshot(uri);
+        final Handler handler = new Handler(Looper.getMainLooper());
+
+        isSaving = true;
+        progressBar.setVisibility(View.VISIBLE);
+        ShakyExecutor.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (pendingFeedback != null) {
+                    // the edit must land after the original, not before it
+                    pendingFeedback.awaitScreenshot();
                 }
-            } catch (IOException e) {
-                Log.e(TAG, "Failed to close output stream", e);
+                final boolean saved = compositor.composite(context, uri, pendingScreenshot);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onSaved(context, saved);
+                    }
+                });
             }
+        });
+    }
+
+    private void onSaved(@NonNull Context context, boolean saved) {
+        isSaving = false;
+        if (getView() != null) {
+            progressBar.setVisibility(View.GONE);
+        }
+
+        DraftStore.Draft draft = DraftStore.getCurrent();
+        if (saved && draft != null) {
+            // the drawing is part of the screenshot now
+            draft.annotations = null;
+            DraftStore.onChanged();
         }
+        Intent intent = new Intent(ACTION_DRAWING_COMPLETE);
+        LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
     }
 }
@@ -16,20 +16,29 @@
 package com.linkedin.android.shaky;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Simple {@link ShakeDelegate} implementation that sends an starts an email intent.
  */
 public class EmailShakeDelegate extends ShakeDelegate {
+    /**
+     * Attachment budget to opt in with, which stays below the 25 MB limit of common mail providers
+     * after the base64 encoding of attachments.
+     */
+    public static final long SUGGESTED_ATTACHMENT_BUDGET_BYTES = 18L * 1024 * 1024;
+
     private String[] to;
     @SensitivityLevel
     private int sensitivityLevel = ShakeDelegate.SENSITIVITY_MEDIUM;
+    private long attachmentBudgetBytes = NO_ATTACHMENT_BUDGET;
 
     public EmailShakeDelegate(@NonNull String[] to) {
         this.to = to;
@@ -41,7 +50,7 @@ public class EmailShakeDelegate extends ShakeDelegate {
 
     @Override
     public final void submit(@NonNull Activity activity, @NonNull Result result) {
-        activity.startActivity(onSubmit(result));
+        activity.startActivity(onSubmit(activity, result));
     }
 
     @Override
@@ -58,13 +67,66 @@ public class EmailShakeDelegate extends ShakeDelegate {
         sensitivityLevel = newLevel;
     }
 
+    @Override
+    public long getAttachmentBudgetBytes() {
+        return attachmentBudgetBytes;
+    }
+
+    /**
+     * Optionally set an attachment budget, e.g. {@link #SUGGESTED_ATTACHMENT_BUDGET_BYTES}, to shrink
+     * attachments that are too large to email. By default, everything is attached as-is.
+     */
+    public void setAttachmentBudgetBytes(long attachmentBudgetBytes) {
+        this.attachmentBudgetBytes = attachmentBudgetBytes;
+    }
+
     /**
      * Creates the email {@link Intent} and attaches all attachments.
      * Subclasses should override this method to customize the email Intent.
      */
     @NonNull
+    public Intent onSubmit(@NonNull Context context, @NonNull Result result) {
+        return createEmailIntent(to, result.getTitle(),
+                getText(result, context.getString(R.string.shaky_attachments_reduced)), result.getAttachments());
+    }
+
+    /**
+     * Creates the email {@link Intent} and attaches all attachments, without a heading above the
+     * changes made to fit the attachment budget.
+     *
+     * @deprecated No longer called by {@link #submit}, override {@link #onSubmit(Context, Result)}
+     */
+    @Deprecated
+    @NonNull
     public Intent onSubmit(@NonNull Result result) {
-        return createEmailIntent(to, result.getTitle(), result.getMessage(), result.getAttachments());
+        return createEmailIntent(to, result.getTitle(), getText(result, null), result.getAttachments());
+    }
+
+    /**
+     * @param heading the line above the changes made to fit the attachment budget, if any
+     * @return the message, followed by the changes made to fit the attachment budget, if any
+     */
+    @Nullable
+    private static String getText(@NonNull Result result, @Nullable String heading) {
+        List<String> report = result.getAttachmentReport();
+        if (report.isEmpty()) {
+            return result.getMessage();
+        }
+
+        StringBuilder text = new StringBuilder();
+        if (result.getMessage() != null) {
+            text.append(result.getMessage()).append("\n\n");
+        }
+        if (heading != null) {
+            text.append(heading);
+        }
+        for (int i = 0; i < report.size(); i++) {
+            if (i > 0 || heading != null) {
+                text.append('\n');
+            }
+            text.append("- ").append(report.get(i));
+        }
+        return text.toString();
     }
 
     /**
@@ -17,10 +17,12 @@ package com.linkedin.android.shaky;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.net.Uri;
 import android.os.Bundle;
+import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
 import androidx.annotation.MenuRes;
@@ -28,6 +30,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.annotation.StyleRes;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -49,21 +52,31 @@ public class FeedbackActivity extends AppCompatActivity {
     static final String SCREENSHOT_URI = "screenshotUri";
     static final String MESSAGE = "message";
     static final String TITLE = "title";
-    static final String USER_DATA = "userData";
+    static final String RESULT_TOKEN = "resultToken";
     static final String RES_MENU = "resMenu";
     static final String SUBCATEGORY = "subcategory";
     static final String THEME = "theme";
     static final String FLOW_TYPE = "flowType";
     private static final String ACTION = "ACTION_THAT_STARTED_THE_ACTIVITY";
+    private static final String KEY_FEEDBACK_TYPE = "feedbackType";
     static final int MISSING_RESOURCE = 0;
 
     private Uri imageUri;
     private @FeedbackItem.FeedbackType int feedbackType;
     private FlowType flowType;
-    private Bundle userData;
+    @Nullable
+    private String resultToken;
     private @MenuRes int resMenu;
     private @StyleRes Integer customTheme;
+    private boolean isSubmitted;
+    @Nullable
+    private AlertDialog restoreScreenshotDialog;
 
+    /**
+     * @deprecated The user data is now registered with {@link ResultRegistry} so that only a token
+     * has to be passed through the Intent. External users should not start this activity directly.
+     */
+    @Deprecated
     @NonNull
     public static Intent newIntent(@NonNull Context context,
                                    @Nullable Uri screenshotUri,
@@ -72,9 +85,29 @@ public class FeedbackActivity extends AppCompatActivity {
                                    @Nullable String actionThatStartedTheActivity,
                                    @StyleRes int theme,
                                    @NonNull FlowType flowType) {
+        return newIntent(context,
+                screenshotUri,
+                userData != null ? ResultRegistry.register(context.getApplicationContext(), userData) : null,
+                resMenu,
+                actionThatStartedTheActivity,
+                theme,
+                flowType);
+    }
+
+    /**
+     * @param resultToken token of the collected data in the {@link ResultRegistry}, if any
+     */
+    @NonNull
+    static Intent newIntent(@NonNull Context context,
+                            @Nullable Uri screenshotUri,
+                            @Nullable String resultToken,
+                            @MenuRes int resMenu,
+                            @Nullable String actionThatStartedTheActivity,
+                            @StyleRes int theme,
+                            @NonNull FlowType flowType) {
         Intent intent = new Intent(context, FeedbackActivity.class);
         intent.putExtra(SCREENSHOT_URI, screenshotUri);
-        intent.putExtra(USER_DATA, userData);
+        intent.putExtra(RESULT_TOKEN, resultToken);
         intent.putExtra(RES_MENU, resMenu);
         intent.putExtra(ACTION, actionThatStartedTheActivity);
         intent.putExtra(THEME, theme);
@@ -100,11 +133,28 @@ public class FeedbackActivity extends AppCompatActivity {
 
         customTheme = getIntent().getIntExtra(THEME, MISSING_RESOURCE);
         imageUri = getIntent().getParcelableExtra(SCREENSHOT_URI);
-        userData = getIntent().getBundleExtra(USER_DATA);
+        resultToken = getIntent().getStringExtra(RESULT_TOKEN);
         resMenu = getIntent().getIntExtra(RES_MENU, FormFragment.DEFAULT_MENU);
         String action = getIntent().getStringExtra(ACTION);
         String flowTypeName = getIntent().getStringExtra(FLOW_TYPE);
         flowType = FlowType.valueOf(flowTypeName);
+        if (savedInstanceState != null) {
+            // may differ from the intent after restoring a draft
+            imageUri = savedInstanceState.getParcelable(SCREENSHOT_URI);
+            resultToken = savedInstanceState.getString(RESULT_TOKEN);
+            feedbackType = savedInstanceState.getInt(KEY_FEEDBACK_TYPE, feedbackType);
+        }
+
+        if (flowType == FlowType.FEEDBACK_FLOW) {
+            DraftStore.Draft restored = DraftStore.takeRestorable();
+            if (savedInstanceState == null && restored != null) {
+                restoreDraft(restored);
+                return;
+            }
+            if (savedInstanceState == null || DraftStore.getCurrent() == null) {
+                beginDraft();
+            }
+        }
 
         if (savedInstanceState == null && action != null) {
             if (action.equals(ActionConstants.ACTION_START_FEEDBACK_FLOW)) {
@@ -123,6 +173,15 @@ public class FeedbackActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+
+        outState.putParcelable(SCREENSHOT_URI, imageUri);
+        outState.putString(RESULT_TOKEN, resultToken);
+        outState.putInt(KEY_FEEDBACK_TYPE, feedbackType);
+    }
+
     @Override
     protected void onResumeFragments() {
         super.onResumeFragments();
@@ -142,6 +201,38 @@ public class FeedbackActivity extends AppCompatActivity {
         LocalBroadcastManager.getInstance(this).unregisterReceiver(receiver);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        if (isFinishing() && !isSubmitted) {
+            // the report was abandoned, stop collecting data for it
+            PendingFeedback pendingFeedback = PendingFeedback.takeCurrent();
+            if (pendingFeedback != null) {
+                pendingFeedback.cancel();
+            }
+            ResultRegistry.release(getApplicationContext(), resultToken);
+        }
+        if (isFinishing() && flowType == FlowType.FEEDBACK_FLOW) {
+            // sent or deliberately abandoned, either way there is nothing left to restore
+            DraftStore.clear(getApplicationContext());
+        }
+        if (restoreScreenshotDialog != null) {
+            // releases the draft's screenshot and data, the new ones are kept
+            restoreScreenshotDialog.dismiss();
+        }
+        if (isFinishing()) {
+            // nothing decodes screenshots again until the next report
+            BitmapPool.clear();
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        BitmapPool.clear();
+    }
+
     @Override
     public void onBackPressed() {
         Intent intent = new Intent(ACTION_ACTIVITY_CLOSED_BY_USER);
@@ -150,6 +241,105 @@ public class FeedbackActivity extends AppCompatActivity {
         super.onBackPressed();
     }
 
+    @NonNull
+    private DraftStore.Draft beginDraft() {
+        DraftStore.Draft draft = DraftStore.begin(this);
+        draft.feedbackType = feedbackType;
+        draft.screenshotUri = imageUri;
+        draft.resultToken = resultToken;
+        return draft;
+    }
+
+    /**
+     * Continues with the feedback that was being written when the app was last closed. Its text
+     * and feedback type are restored on top of the new screenshot and collected data. If the
+     * draft's own screenshot and data are still around, they are only used once the user agrees to
+     * replace the new ones with them, or when nothing new was captured.
+     */
+    private void restoreDraft(@NonNull DraftStore.Draft restored) {
+        boolean shouldAsk = restored.canRestoreAttachments && imageUri != null;
+        if (!restored.canRestoreAttachments) {
+            ResultRegistry.release(getApplicationContext(), restored.resultToken);
+        } else if (!shouldAsk) {
+            useDraftAttachments(restored);
+        }
+        setFeedbackType(restored.feedbackType);
+
+        DraftStore.Draft draft = beginDraft();
+        draft.message = restored.message;
+        draft.subcategory = restored.subcategory;
+        draft.annotations = restored.canRestoreAttachments && !shouldAsk ? restored.annotations : null;
+        DraftStore.onChanged();
+
+        startFormFragment(feedbackType, false,
+                restored.message != null ? restored.message.toString() : null, restored.subcategory);
+        if (draft.annotations != null && imageUri != null) {
+            changeToFragment(DrawFragment.newInstance(imageUri, customTheme, draft.annotations), true);
+        }
+        Toast.makeText(this, R.string.shaky_draft_restored, Toast.LENGTH_SHORT).show();
+
+        if (shouldAsk) {
+            askToRestoreScreenshot(restored);
+        }
+    }
+
+    /**
+     * Asks whether the draft's screenshot should replace the new one. The draft's screenshot and
+     * data are released unless the user picks them, also when the dialog goes away with the activity.
+     */
+    private void askToRestoreScreenshot(@NonNull final DraftStore.Draft restored) {
+        restoreScreenshotDialog = new AlertDialog.Builder(this)
+            .setMessage(R.string.shaky_draft_restore_screenshot)
+            .setPositiveButton(R.string.shaky_draft_use_previous_screenshot, new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) {
+                    useDraftAttachments(restored);
+
+                    // keeps the text, which the form may have saved in the meantime
+                    DraftStore.Draft draft = DraftStore.getCurrent();
+                    if (draft == null) {
+                        draft = beginDraft();
+                        draft.message = restored.message;
+                        draft.subcategory = restored.subcategory;
+                    }
+                    draft.screenshotUri = imageUri;
+                    draft.resultToken = resultToken;
+                    draft.annotations = restored.annotations;
+                    DraftStore.onChanged();
+
+                    startFormFragment(feedbackType, false,
+                            draft.message != null ? draft.message.toString() : null, draft.subcategory);
+                    if (draft.annotations != null && imageUri != null) {
+                        changeToFragment(DrawFragment.newInstance(imageUri, customTheme, draft.annotations), true);
+                    }
+                }
+            })
+            .setNegativeButton(R.string.shaky_draft_keep_new_screenshot, null)
+            .setOnDismissListener(new DialogInterface.OnDismissListener() {
+                @Override
+                public void onDismiss(DialogInterface dialog) {
+                    restoreScreenshotDialog = null;
+                    if (!Objects.equals(restored.resultToken, resultToken)) {
+                        ResultRegistry.release(getApplicationContext(), restored.resultToken);
+                    }
+                }
+            })
+            .show();
+    }
+
+    /**
+     * Replaces the new screenshot and collected data with the ones of the restored draft.
+     */
+    private void useDraftAttachments(@NonNull DraftStore.Draft restored) {
+        PendingFeedback pendingFeedback = PendingFeedback.takeCurrent();
+        if (pendingFeedback != null) {
+            pendingFeedback.cancel();
+        }
+        ResultRegistry.release(getApplicationContext(), resultToken);
+        imageUri = restored.screenshotUri;
+        resultToken = restored.resultToken;
+    }
+
     /**
      * Attaches this intent's extras to the fragment and transitions to the next fragment.
      *
@@ -179,6 +369,15 @@ public class FeedbackActivity extends AppCompatActivity {
     private void startFormFragment(
         @FeedbackItem.FeedbackType int feedbackType,
         boolean shouldAddToBackStack
+    ) {
+        startFormFragment(feedbackType, shouldAddToBackStack, null, null);
+    }
+
+    private void startFormFragment(
+        @FeedbackItem.FeedbackType int feedbackType,
+        boolean shouldAddToBackStack,
+        @Nullable String message,
+        @Nullable String subcategory
     ) {
         String title = getString(getTitleResId(feedbackType));
         String hint = getString(getHintResId(feedbackType));
@@ -191,6 +390,7 @@ public class FeedbackActivity extends AppCompatActivity {
             .setMenu(resMenu)
             .setSubtypes(subtypes != null ? R.array.shaky_bug_subcategories : null, subtypes)
             .setTheme(customTheme)
+            .setDraft(message, subcategory)
             .build(),
             shouldAddToBackStack);
     }
@@ -204,6 +404,12 @@ public class FeedbackActivity extends AppCompatActivity {
 
     private void setFeedbackType(@FeedbackItem.FeedbackType int feedbackType) {
         this.feedbackType = feedbackType;
+
+        DraftStore.Draft draft = DraftStore.getCurrent();
+        if (draft != null) {
+            draft.feedbackType = feedbackType;
+            DraftStore.onChanged();
+        }
     }
 
     private final BroadcastReceiver receiver = new BroadcastReceiver() {
@@ -250,9 +456,10 @@ public class FeedbackActivity extends AppCompatActivity {
         intent.putExtra(SCREENSHOT_URI, imageUri);
         intent.putExtra(TITLE, getString(getTitleResId(feedbackType)));
         intent.putExtra(MESSAGE, userMessage);
-        intent.putExtra(USER_DATA, userData);
+        intent.putExtra(RESULT_TOKEN, resultToken);
         intent.putExtra(SUBCATEGORY, subcategory);
 
+        isSubmitted = true;
         LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
         finish();
     }
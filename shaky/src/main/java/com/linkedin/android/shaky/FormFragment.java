@@ -18,9 +18,15 @@ package com.linkedin.android.shaky;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
+import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Spinner;
 import android.widget.TextView;
@@ -30,6 +36,7 @@ import androidx.annotation.MenuRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.StyleRes;
+import androidx.annotation.WorkerThread;
 import androidx.fragment.app.Fragment;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import androidx.appcompat.app.AlertDialog;
@@ -41,6 +48,8 @@ import android.view.ViewGroup;
 import android.widget.EditText;
 import android.widget.ImageView;
 
+import java.io.File;
+
 
 /**
  * The main form used to send feedback.
@@ -61,8 +70,12 @@ public class FormFragment extends Fragment {
     private static final String KEY_SUBTYPE_LABELS = "subtypeLabels";
     private static final String KEY_SUBTYPES = "subtypes";
     private static final String KEY_THEME = "theme";
+    private static final String KEY_MESSAGE = "message";
+    private static final String KEY_SUBCATEGORY = "subcategory";
 
     @Nullable private LayoutInflater inflater;
+    @Nullable private ImageView attachmentImageView;
+    @Nullable private Bitmap thumbnail;
 
     /**
      * Factory method for creating a {@link FormFragment}
@@ -132,7 +145,7 @@ public class FormFragment extends Fragment {
 
         Toolbar toolbar = (Toolbar) view.findViewById(R.id.shaky_toolbar);
         EditText messageEditText = (EditText) view.findViewById(R.id.shaky_form_message);
-        ImageView attachmentImageView = (ImageView) view.findViewById(R.id.shaky_form_attachment);
+        attachmentImageView = (ImageView) view.findViewById(R.id.shaky_form_attachment);
 
         Uri screenshotUri = getArguments().getParcelable(KEY_SCREENSHOT_URI);
         int sendIconResource = getArguments().getInt(KEY_MENU);
@@ -146,6 +159,13 @@ public class FormFragment extends Fragment {
                 getArguments().getInt(KEY_SUBTYPE_LABELS));
             adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
             spinner.setAdapter(adapter);
+            if (savedInstanceState == null) {
+                int position = adapter.getPosition(getArguments().getString(KEY_SUBCATEGORY));
+                if (position > 0) {
+                    spinner.setSelection(position);
+                }
+            }
+            spinner.setOnItemSelectedListener(createSubcategoryListener());
         }
 
         String title = getArguments().getString(KEY_TITLE);
@@ -157,12 +177,83 @@ public class FormFragment extends Fragment {
 
         String hint = getArguments().getString(KEY_HINT);
         messageEditText.setHint(hint);
+        if (savedInstanceState == null) {
+            messageEditText.setText(getArguments().getString(KEY_MESSAGE));
+            messageEditText.setSelection(messageEditText.length());
+        }
+        messageEditText.addTextChangedListener(createMessageWatcher());
         messageEditText.requestFocus();
 
-        attachmentImageView.setImageURI(screenshotUri);
+        Bitmap pendingScreenshot = PendingFeedback.getScreenshot(screenshotUri);
+        if (pendingScreenshot != null) {
+            // still being written to disk
+            attachmentImageView.setImageBitmap(pendingScreenshot);
+        } else if (screenshotUri != null) {
+            loadThumbnail(view, attachmentImageView, screenshotUri);
+        }
         attachmentImageView.setOnClickListener(createNavigationClickListener());
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+
+        if (thumbnail != null) {
+            attachmentImageView.setImageDrawable(null);
+            BitmapPool.release(thumbnail);
+            thumbnail = null;
+        }
+        attachmentImageView = null;
+    }
+
+    /**
+     * Decodes the screenshot in the background, only as large as the thumbnail is shown, with the
+     * drawing kept next to it laid over it if there is one.
+     */
+    private void loadThumbnail(@NonNull final View container,
+                               @NonNull final ImageView imageView,
+                               @NonNull final Uri screenshotUri) {
+        final Context context = container.getContext().getApplicationContext();
+        // the width follows from the height and the aspect ratio of the screenshot
+        final int height = getResources().getDimensionPixelSize(R.dimen.shaky_screenshot_height);
+        final Handler handler = new Handler(Looper.getMainLooper());
+        ShakyExecutor.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = decodeThumbnail(context, screenshotUri, height);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (getView() != container) {
+                            // the view was destroyed in the meantime
+                            if (bitmap != null) {
+                                BitmapPool.release(bitmap);
+                            }
+                            return;
+                        }
+                        thumbnail = bitmap;
+                        imageView.setImageBitmap(bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    @Nullable
+    @WorkerThread
+    private static Bitmap decodeThumbnail(@NonNull Context context, @NonNull Uri screenshotUri, int height) {
+        Bitmap screenshot = Utils.decodeSampledBitmap(context, screenshotUri, 1, height);
+        File screenshotFile = AnnotationLayer.getScreenshotFile(screenshotUri);
+        if (screenshot == null || screenshotFile == null || AnnotationLayer.isFlattened()) {
+            return screenshot;
+        }
+        AnnotationLayer layer = AnnotationLayer.read(screenshotFile);
+        if (layer != null) {
+            layer.drawOnto(screenshot);
+        }
+        return screenshot;
+    }
+
     @NonNull
     private View.OnClickListener createNavigationClickListener() {
         return new View.OnClickListener() {
@@ -174,6 +265,44 @@ public class FormFragment extends Fragment {
         };
     }
 
+    @NonNull
+    private TextWatcher createMessageWatcher() {
+        return new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                DraftStore.Draft draft = DraftStore.getCurrent();
+                if (draft != null) {
+                    // the text is only copied when the draft is saved
+                    draft.message = s;
+                    DraftStore.onChanged();
+                }
+            }
+        };
+    }
+
+    @NonNull
+    private AdapterView.OnItemSelectedListener createSubcategoryListener() {
+        return new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                DraftStore.Draft draft = DraftStore.getCurrent();
+                if (draft != null) {
+                    draft.subcategory = position > 0 ? (String) parent.getItemAtPosition(position) : null;
+                    DraftStore.onChanged();
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        };
+    }
+
     @NonNull
     private Toolbar.OnMenuItemClickListener createMenuClickListener(
         @NonNull final EditText messageEditText, @Nullable final Spinner spinner) {
@@ -287,6 +416,8 @@ public class FormFragment extends Fragment {
         @Nullable @ArrayRes Integer subtypeLabels;
         @Nullable String[] subtypes;
         @Nullable @StyleRes Integer theme;
+        @Nullable String message;
+        @Nullable String subcategory;
 
         Builder(@NonNull String title, @NonNull String hint) {
             this.title = title;
@@ -321,6 +452,16 @@ public class FormFragment extends Fragment {
             return this;
         }
 
+        /**
+         * Fills in the form, e.g. from a restored draft.
+         */
+        @NonNull
+        Builder setDraft(@Nullable String message, @Nullable String subcategory) {
+            this.message = message;
+            this.subcategory = subcategory;
+            return this;
+        }
+
         @NonNull
         FormFragment build() {
             Bundle args = new Bundle();
@@ -335,6 +476,8 @@ public class FormFragment extends Fragment {
             if (theme != null) {
                 args.putInt(KEY_THEME, theme);
             }
+            args.putString(KEY_MESSAGE, message);
+            args.putString(KEY_SUBCATEGORY, subcategory);
 
             FormFragment fragment = new FormFragment();
             fragment.setArguments(args);
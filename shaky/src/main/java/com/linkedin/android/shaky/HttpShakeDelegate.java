@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.app.Activity;
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Simple {@link ShakeDelegate} implementation that POSTs the feedback to an HTTP endpoint as a
+ * single multipart/form-data request.
+ * <p/>
+ * The title, message, subcategory and custom data are sent as text fields, followed by one
+ * {@code attachment} file part per attachment. Attachments are streamed from their file or
+ * ContentResolver stream with chunked transfer encoding, so they are never held in memory as a
+ * whole. Upload progress is reported in bytes through {@link ShakyFlowCallback#onSubmitProgress}.
+ */
+public class HttpShakeDelegate extends ShakeDelegate {
+    private static final String TAG = HttpShakeDelegate.class.getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String CRLF = "\r\n";
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int TIMEOUT_MS = 30 * 1000;
+
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_MESSAGE = "message";
+    private static final String FIELD_SUBCATEGORY = "subcategory";
+    private static final String FIELD_ATTACHMENT = "attachment";
+
+    private final URL endpoint;
+    @SensitivityLevel
+    private int sensitivityLevel = ShakeDelegate.SENSITIVITY_MEDIUM;
+
+    public HttpShakeDelegate(@NonNull URL endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    @ShakeDelegate.SensitivityLevel
+    public int getSensitivityLevel() {
+        return sensitivityLevel;
+    }
+
+    /**
+     * Optionally override sensitivityLevel to one of ShakeDelegate.SENSITIVITY_*
+     */
+    @Override
+    public void setSensitivityLevel(@ShakeDelegate.SensitivityLevel int newLevel) {
+        sensitivityLevel = newLevel;
+    }
+
+    @Override
+    public final boolean shouldSubmitAsync() {
+        return true;
+    }
+
+    @Override
+    @WorkerThread
+    public void submitAsync(@NonNull Context context, @NonNull Result result, @NonNull SubmitCallback callback) {
+        try {
+            upload(context, result, callback);
+            callback.onSuccess();
+        } catch (IOException e) {
+            callback.onFailure(e);
+        } catch (RuntimeException e) {
+            // e.g. a SecurityException or IllegalArgumentException while opening an attachment
+            callback.onFailure(e);
+        }
+    }
+
+    /**
+     * Not used, since {@link #shouldSubmitAsync()} is always true.
+     */
+    @Override
+    public final void submit(@NonNull Activity activity, @NonNull Result result) {
+        Log.e(TAG, "submit() called on an HttpShakeDelegate");
+    }
+
+    /**
+     * Called before the request is sent. Subclasses can override this to add headers, e.g. for
+     * authentication, or change timeouts.
+     */
+    @WorkerThread
+    protected void onPrepareConnection(@NonNull HttpURLConnection connection) throws IOException {
+    }
+
+    @WorkerThread
+    private void upload(@NonNull Context context,
+                        @NonNull Result result,
+                        @NonNull SubmitCallback callback) throws IOException {
+        List<Uri> attachments = result.getAttachments();
+        long total = 0;
+        for (Uri attachment : attachments) {
+            long size = Utils.getSize(context, attachment);
+            total = total >= 0 && size >= 0 ? total + size : -1;
+        }
+
+        String boundary = "ShakyBoundary" + UUID.randomUUID().toString().replace("-", "");
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setChunkedStreamingMode(CHUNK_SIZE);
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+            onPrepareConnection(connection);
+
+            OutputStream outputStream = new BufferedOutputStream(connection.getOutputStream(), CHUNK_SIZE);
+            try {
+                writeField(outputStream, boundary, FIELD_TITLE, result.getTitle());
+                writeField(outputStream, boundary, FIELD_MESSAGE, result.getMessage());
+                writeField(outputStream, boundary, FIELD_SUBCATEGORY, result.getSubcategory());
+                for (Map.Entry<String, String> entry : result.getCustomDataAsStrings().entrySet()) {
+                    writeField(outputStream, boundary, entry.getKey(), entry.getValue());
+                }
+
+                long completed = 0;
+                callback.onProgress(completed, total);
+                byte[] buffer = new byte[CHUNK_SIZE];
+                for (Uri attachment : attachments) {
+                    writeHeader(outputStream, boundary, FIELD_ATTACHMENT,
+                                Utils.getDisplayName(context, attachment),
+                                Utils.getMimeType(context, attachment));
+                    InputStream inputStream = Utils.openInputStream(context, attachment);
+                    try {
+                        int read;
+                        while ((read = inputStream.read(buffer)) != -1) {
+                            if (Thread.currentThread().isInterrupted()) {
+                                throw new InterruptedIOException("Upload cancelled");
+                            }
+                            outputStream.write(buffer, 0, read);
+                            completed += read;
+                            callback.onProgress(completed, total);
+                        }
+                    } finally {
+                        Utils.closeQuietly(inputStream);
+                    }
+                    outputStream.write(CRLF.getBytes(UTF_8));
+                }
+                outputStream.write(("--" + boundary + "--" + CRLF).getBytes(UTF_8));
+            } finally {
+                outputStream.close();
+            }
+
+            int code = connection.getResponseCode();
+            if (code < 200 || code >= 300) {
+                throw new IOException("Feedback upload failed with HTTP " + code);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static void writeField(@NonNull OutputStream outputStream,
+                                   @NonNull String boundary,
+                                   @NonNull String name,
+                                   @Nullable String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        writeHeader(outputStream, boundary, name, null, "text/plain; charset=UTF-8");
+        outputStream.write(value.getBytes(UTF_8));
+        outputStream.write(CRLF.getBytes(UTF_8));
+    }
+
+    private static void writeHeader(@NonNull OutputStream outputStream,
+                                    @NonNull String boundary,
+                                    @NonNull String name,
+                                    @Nullable String fileName,
+                                    @NonNull String contentType) throws IOException {
+        StringBuilder header = new StringBuilder()
+                .append("--").append(boundary).append(CRLF)
+                .append("Content-Disposition: form-data; name=\"").append(escape(name)).append('"');
+        if (fileName != null) {
+            header.append("; filename=\"").append(escape(fileName)).append('"');
+        }
+        header.append(CRLF)
+                .append("Content-Type: ").append(contentType).append(CRLF)
+                .append(CRLF);
+        outputStream.write(header.toString().getBytes(UTF_8));
+    }
+
+    @NonNull
+    private static String escape(@NonNull String value) {
+        return value.replace("\"", "%22").replace("\r", "%0D").replace("\n", "%0A");
+    }
+}
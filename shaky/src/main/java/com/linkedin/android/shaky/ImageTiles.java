@@ -0,0 +1,324 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Draws the part of a large image that is on screen in tiles decoded with
+ * {@link BitmapRegionDecoder}, at just the resolution the current zoom needs. Only the tiles that
+ * are visible are kept in memory; the rest are dropped as soon as they scroll out of view.
+ * <p/>
+ * Tiles are decoded in the background and drawn once they are ready, so whatever is drawn under
+ * them shows through in the meantime. They are decoded one at a time, newest first, so after a pan
+ * or zoom the tiles now on screen come before the ones requested on the way there, which are
+ * skipped once they have been dropped.
+ */
+final class ImageTiles {
+    private static final String TAG = ImageTiles.class.getSimpleName();
+    /** Size of a decoded tile in pixels, whatever its sample size. */
+    private static final int TILE_SIZE = 512;
+
+    /**
+     * Notified on the main thread when a tile has been decoded and can be drawn.
+     */
+    interface Listener {
+        void onTileLoaded();
+    }
+
+    @NonNull
+    private final BitmapRegionDecoder decoder;
+    private final int imageWidth;
+    private final int imageHeight;
+    private final Map<Long, Tile> tiles = new HashMap<>();
+    /** Tiles waiting to be decoded, the most recently requested first. Guarded by itself. */
+    private final ArrayDeque<Tile> pending = new ArrayDeque<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Matrix viewToImage = new Matrix();
+    private final RectF visible = new RectF();
+    private final RectF tileBounds = new RectF();
+
+    @Nullable
+    private Listener listener;
+    /** Counts the draws, so the tiles that were not drawn last time can be told apart. */
+    private int drawCount;
+    private boolean isReleased;
+    /** Whether a task is decoding the pending tiles. Guarded by {@link #pending}. */
+    private boolean isDecoding;
+
+    private ImageTiles(@NonNull BitmapRegionDecoder decoder) {
+        this.decoder = decoder;
+        this.imageWidth = decoder.getWidth();
+        this.imageHeight = decoder.getHeight();
+    }
+
+    /**
+     * @return the tiles for the image at the Uri, or null if it can't be decoded in regions
+     */
+    @Nullable
+    @WorkerThread
+    static ImageTiles open(@NonNull Context context, @NonNull Uri uri) {
+        InputStream inputStream = null;
+        try {
+            inputStream = Utils.openInputStream(context, uri);
+            BitmapRegionDecoder decoder = Utils.newRegionDecoder(inputStream);
+            return decoder != null ? new ImageTiles(decoder) : null;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not open " + uri + " for tiling", e);
+            return null;
+        } finally {
+            Utils.closeQuietly(inputStream);
+        }
+    }
+
+    int getImageWidth() {
+        return imageWidth;
+    }
+
+    int getImageHeight() {
+        return imageHeight;
+    }
+
+    @MainThread
+    void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Draws the visible tiles that are ready, and starts decoding the ones that are missing.
+     *
+     * @param imageToView maps the image's pixels onto the view
+     * @param baseScale pixels per image pixel of the image that is already drawn under the tiles.
+     *                  No tiles are needed unless the view shows the image in more detail.
+     */
+    @MainThread
+    void draw(@NonNull Canvas canvas, @NonNull Matrix imageToView, int viewWidth, int viewHeight, float baseScale) {
+        drawCount++;
+        float scale = imageToView.mapRadius(1f);
+        int sampleSize = 1;
+        while (sampleSize * 2 * scale <= 1f) {
+            sampleSize *= 2;
+        }
+        if (isReleased || 1f / sampleSize <= baseScale || !imageToView.invert(viewToImage)) {
+            evictUnused();
+            return;
+        }
+
+        visible.set(0, 0, viewWidth, viewHeight);
+        viewToImage.mapRect(visible);
+        if (!visible.intersect(0, 0, imageWidth, imageHeight)) {
+            evictUnused();
+            return;
+        }
+
+        int span = TILE_SIZE * sampleSize;
+        int firstColumn = (int) (visible.left / span);
+        int lastColumn = (int) ((visible.right - 1) / span);
+        int firstRow = (int) (visible.top / span);
+        int lastRow = (int) ((visible.bottom - 1) / span);
+
+        canvas.save();
+        canvas.concat(imageToView);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                Tile tile = getOrDecodeTile(sampleSize, column, row, span);
+                tile.drawCount = drawCount;
+                if (tile.bitmap != null) {
+                    tileBounds.set(tile.region);
+                    canvas.drawBitmap(tile.bitmap, null, tileBounds, paint);
+                }
+            }
+        }
+        canvas.restore();
+        evictUnused();
+    }
+
+    @NonNull
+    private Tile getOrDecodeTile(int sampleSize, int column, int row, int span) {
+        long key = ((long) sampleSize << 48) | ((long) column << 24) | row;
+        Tile tile = tiles.get(key);
+        if (tile == null) {
+            Rect region = new Rect(column * span, row * span,
+                    Math.min((column + 1) * span, imageWidth), Math.min((row + 1) * span, imageHeight));
+            tile = new Tile(region, sampleSize);
+            tiles.put(key, tile);
+            decode(tile);
+        }
+        return tile;
+    }
+
+    @MainThread
+    private void decode(@NonNull Tile tile) {
+        synchronized (pending) {
+            pending.push(tile);
+            if (isDecoding) {
+                return;
+            }
+            isDecoding = true;
+        }
+        ShakyExecutor.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                decodePending();
+            }
+        });
+    }
+
+    /**
+     * Decodes the pending tiles until there are none left, as the only task doing so.
+     */
+    @WorkerThread
+    private void decodePending() {
+        while (true) {
+            final Tile tile;
+            synchronized (pending) {
+                tile = pending.poll();
+                if (tile == null) {
+                    isDecoding = false;
+                    return;
+                }
+            }
+            if (tile.isCancelled) {
+                continue;
+            }
+
+            final Bitmap bitmap = decodeRegion(tile);
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (tile.isCancelled) {
+                        if (bitmap != null) {
+                            bitmap.recycle();
+                        }
+                        return;
+                    }
+                    tile.bitmap = bitmap;
+                    if (bitmap != null && listener != null) {
+                        listener.onTileLoaded();
+                    }
+                }
+            });
+        }
+    }
+
+    @Nullable
+    @WorkerThread
+    private Bitmap decodeRegion(@NonNull Tile tile) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = tile.sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        synchronized (decoder) {
+            // the tile may have been dropped while waiting for the decoder
+            if (tile.isCancelled || decoder.isRecycled()) {
+                return null;
+            }
+            try {
+                return decoder.decodeRegion(tile.region, options);
+            } catch (RuntimeException | OutOfMemoryError e) {
+                // the base image is still drawn under the missing tile
+                Log.e(TAG, "Could not decode tile " + tile.region, e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Drops the tiles that were not drawn last time.
+     */
+    private void evictUnused() {
+        Iterator<Tile> iterator = tiles.values().iterator();
+        while (iterator.hasNext()) {
+            Tile tile = iterator.next();
+            if (tile.drawCount != drawCount) {
+                tile.cancel();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops all tiles and closes the decoder. Nothing is drawn after this.
+     */
+    @MainThread
+    void release() {
+        isReleased = true;
+        listener = null;
+        for (Tile tile : tiles.values()) {
+            tile.cancel();
+        }
+        tiles.clear();
+        synchronized (pending) {
+            pending.clear();
+        }
+        ShakyExecutor.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                // waits for a decode in progress
+                synchronized (decoder) {
+                    decoder.recycle();
+                }
+            }
+        });
+    }
+
+    /**
+     * A region of the image, decoded at one sample size.
+     */
+    private static class Tile {
+        final Rect region;
+        final int sampleSize;
+        @Nullable
+        Bitmap bitmap;
+        int drawCount;
+        volatile boolean isCancelled;
+
+        Tile(@NonNull Rect region, int sampleSize) {
+            this.region = region;
+            this.sampleSize = sampleSize;
+        }
+
+        void cancel() {
+            isCancelled = true;
+            // not recycled, the last frame may still be drawing it
+            bitmap = null;
+        }
+    }
+}
@@ -66,9 +66,11 @@ final class MultiWindowScreenshotCapture {
      * Callback is invoked on main thread when all captures complete.
      *
      * @param activity the activity to capture screenshots from
+     * @param masker   hides the sensitive parts of each window as soon as it is captured
      * @param callback receives list of bitmaps (one per window), or null if all captures failed
      */
     static void captureMultipleAsync(@NonNull Activity activity,
+                                     @NonNull ScreenshotMasker masker,
                                      @NonNull MultiBitmapCallback callback
     ) {
         final List<ViewRootData> rootViews = getRootViews(activity);
@@ -100,6 +102,8 @@ final class MultiWindowScreenshotCapture {
 
                     if (bitmap == null) {
                         Log.e(TAG, "Failed to capture window " + index);
+                    } else {
+                        masker.maskWindow(bitmap, rootView._view);
                     }
 
                     if (completed == rootViews.size()) {
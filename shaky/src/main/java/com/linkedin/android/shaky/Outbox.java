@@ -0,0 +1,400 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journal of submitted reports waiting to be sent by an {@link OutboxTransport}.
+ * <p/>
+ * Each report gets its own directory under {@code files/shaky_outbox}, holding copies of its
+ * attachments and a {@code report.json} with the metadata. Entries are put together in a staging
+ * directory and moved into the outbox with a rename, so a drain never sees a half-written report.
+ * All files are encrypted if {@link AtRestEncryption} is enabled.
+ * <p/>
+ * Draining is done by {@link OutboxJobService}, which JobScheduler starts once the transport's
+ * constraints are met and retries with exponential backoff after a failure.
+ */
+final class Outbox {
+    private static final String TAG = Outbox.class.getSimpleName();
+    private static final String DIRECTORY = "shaky_outbox";
+    private static final String STAGING_DIRECTORY = "shaky_outbox_staging";
+    private static final long MAX_STAGING_AGE_MS = TimeUnit.HOURS.toMillis(1);
+    private static final String REPORT_FILE = "report.json";
+    private static final String REPORT_FILE_TEMP = "report.json.tmp";
+    private static final String ATTACHMENT_PREFIX = "attachment_";
+
+    private static final String KEY_ID = "id";
+    private static final String KEY_CREATED_AT = "createdAt";
+    private static final String KEY_ATTEMPTS = "attempts";
+    private static final String KEY_TITLE = "title";
+    private static final String KEY_MESSAGE = "message";
+    private static final String KEY_SUBCATEGORY = "subcategory";
+    private static final String KEY_DATA = "data";
+    private static final String KEY_ATTACHMENTS = "attachments";
+    private static final String KEY_ATTACHMENT_SIZES = "attachmentSizes";
+
+    @Nullable
+    private static OutboxTransport transport;
+    private static int jobId = ShakeDelegate.DEFAULT_OUTBOX_JOB_ID;
+
+    // prevent instantiation
+    private Outbox() {}
+
+    /**
+     * Sets the transport that drains the outbox. Until one is set, reports stay on disk.
+     */
+    static synchronized void setTransport(@Nullable OutboxTransport outboxTransport) {
+        transport = outboxTransport;
+    }
+
+    @Nullable
+    static synchronized OutboxTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets the JobScheduler job id drains are scheduled with.
+     */
+    static synchronized void setJobId(int outboxJobId) {
+        jobId = outboxJobId;
+    }
+
+    static synchronized int getJobId() {
+        return jobId;
+    }
+
+    /**
+     * Copies the result and its attachments into the outbox and schedules a drain.
+     *
+     * @return the id of the new report
+     */
+    @NonNull
+    @WorkerThread
+    static String enqueue(@NonNull Context context, @NonNull Result result) throws IOException {
+        String id = UUID.randomUUID().toString();
+        File directory = new File(new File(context.getFilesDir(), STAGING_DIRECTORY), id);
+        File outbox = getDirectory(context);
+        if (!directory.mkdirs() || (!outbox.mkdirs() && !outbox.exists())) {
+            throw new IOException("Could not create outbox entry " + directory);
+        }
+
+        try {
+            JSONArray attachments = new JSONArray();
+            JSONArray attachmentSizes = new JSONArray();
+            List<Uri> uris = result.getAttachments();
+            for (int i = 0; i < uris.size(); i++) {
+                Uri uri = uris.get(i);
+                File file = new File(directory, ATTACHMENT_PREFIX + i + "_" + getFileName(uri));
+                attachmentSizes.put(Utils.copyToFile(Utils.openInputStream(context, uri), file));
+                attachments.put(file.getName());
+            }
+
+            JSONObject json = new JSONObject();
+            json.put(KEY_ID, id);
+            json.put(KEY_CREATED_AT, System.currentTimeMillis());
+            json.put(KEY_ATTEMPTS, 0);
+            json.putOpt(KEY_TITLE, result.getTitle());
+            json.putOpt(KEY_MESSAGE, result.getMessage());
+            json.putOpt(KEY_SUBCATEGORY, result.getSubcategory());
+            json.put(KEY_DATA, new JSONObject(result.getCustomDataAsStrings()));
+            json.put(KEY_ATTACHMENTS, attachments);
+            json.put(KEY_ATTACHMENT_SIZES, attachmentSizes);
+            writeReportFile(directory, json);
+
+            if (!directory.renameTo(new File(outbox, id))) {
+                throw new IOException("Could not move " + directory + " into the outbox");
+            }
+        } catch (IOException | JSONException e) {
+            deleteRecursively(directory);
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+
+        schedule(context);
+        return id;
+    }
+
+    /**
+     * Schedules a drain if there is a transport and anything to send, e.g. after a process restart.
+     */
+    @WorkerThread
+    static void resume(@NonNull Context context) {
+        if (getTransport() == null) {
+            return;
+        }
+        pruneStaging(context);
+        if (!getPendingReports(context).isEmpty()) {
+            schedule(context);
+        }
+    }
+
+    /**
+     * Sends all pending reports in batches, stopping at the first failure.
+     *
+     * @return true if the outbox is empty, false if the drain should be retried later
+     */
+    @WorkerThread
+    static boolean drain(@NonNull Context context) {
+        OutboxTransport outboxTransport = getTransport();
+        if (outboxTransport == null) {
+            // nothing can be sent, the next resume() schedules a new drain
+            return true;
+        }
+
+        List<OutboxReport> reports = getPendingReports(context);
+        int batchSize = Math.max(1, outboxTransport.getMaxBatchSize());
+        for (int start = 0; start < reports.size(); start += batchSize) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+
+            List<OutboxReport> batch = reports.subList(start, Math.min(start + batchSize, reports.size()));
+            try {
+                outboxTransport.send(Collections.unmodifiableList(batch));
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Failed to send " + batch.size() + " reports", e);
+                recordFailure(batch, outboxTransport.getMaxAttempts());
+                return false;
+            }
+
+            for (OutboxReport report : batch) {
+                deleteRecursively(report.getDirectory());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the complete reports in the outbox, oldest first
+     */
+    @NonNull
+    @WorkerThread
+    static List<OutboxReport> getPendingReports(@NonNull Context context) {
+        File[] directories = getDirectory(context).listFiles();
+        if (directories == null) {
+            return Collections.emptyList();
+        }
+
+        List<OutboxReport> reports = new ArrayList<>();
+        for (File directory : directories) {
+            OutboxReport report = readReport(directory);
+            if (report != null) {
+                reports.add(report);
+            } else {
+                Log.e(TAG, "Removing incomplete outbox entry: " + directory);
+                deleteRecursively(directory);
+            }
+        }
+
+        Collections.sort(reports, new Comparator<OutboxReport>() {
+            @Override
+            public int compare(OutboxReport first, OutboxReport second) {
+                return Long.compare(first.getCreatedAtMillis(), second.getCreatedAtMillis());
+            }
+        });
+        return reports;
+    }
+
+    @WorkerThread
+    private static void pruneStaging(@NonNull Context context) {
+        File[] directories = new File(context.getFilesDir(), STAGING_DIRECTORY).listFiles();
+        if (directories == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (File directory : directories) {
+            // enqueues still in progress are much younger than this
+            if (now - directory.lastModified() > MAX_STAGING_AGE_MS) {
+                deleteRecursively(directory);
+            }
+        }
+    }
+
+    private static void schedule(@NonNull Context context) {
+        OutboxTransport outboxTransport = getTransport();
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (outboxTransport == null || scheduler == null) {
+            return;
+        }
+
+        JobInfo job = new JobInfo.Builder(getJobId(), new ComponentName(context, OutboxJobService.class))
+                .setRequiredNetworkType(outboxTransport.requiresUnmeteredNetwork()
+                        ? JobInfo.NETWORK_TYPE_UNMETERED
+                        : JobInfo.NETWORK_TYPE_ANY)
+                .setRequiresCharging(outboxTransport.requiresCharging())
+                .setBackoffCriteria(outboxTransport.getInitialBackoffMillis(), JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .build();
+        if (scheduler.schedule(job) != JobScheduler.RESULT_SUCCESS) {
+            Log.e(TAG, "Could not schedule outbox drain");
+        }
+    }
+
+    @WorkerThread
+    private static void recordFailure(@NonNull List<OutboxReport> batch, int maxAttempts) {
+        for (OutboxReport report : batch) {
+            File directory = report.getDirectory();
+            int attempts = report.getAttempts() + 1;
+            if (attempts >= maxAttempts) {
+                Log.e(TAG, "Dropping report " + report.getId() + " after " + attempts + " attempts");
+                deleteRecursively(directory);
+                continue;
+            }
+
+            try {
+                JSONObject json = readJson(new File(directory, REPORT_FILE));
+                json.put(KEY_ATTEMPTS, attempts);
+                writeReportFile(directory, json);
+            } catch (IOException | JSONException e) {
+                Log.e(TAG, "Could not update report " + report.getId(), e);
+            }
+        }
+    }
+
+    @Nullable
+    @WorkerThread
+    private static OutboxReport readReport(@NonNull File directory) {
+        File file = new File(directory, REPORT_FILE);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            JSONObject json = readJson(file);
+
+            Map<String, String> data = new HashMap<>();
+            JSONObject jsonData = json.getJSONObject(KEY_DATA);
+            JSONArray names = jsonData.names();
+            for (int i = 0; names != null && i < names.length(); i++) {
+                String name = names.getString(i);
+                data.put(name, jsonData.getString(name));
+            }
+
+            List<File> attachments = new ArrayList<>();
+            List<Long> attachmentSizes = new ArrayList<>();
+            JSONArray jsonAttachments = json.getJSONArray(KEY_ATTACHMENTS);
+            JSONArray jsonAttachmentSizes = json.optJSONArray(KEY_ATTACHMENT_SIZES);
+            for (int i = 0; i < jsonAttachments.length(); i++) {
+                File attachment = new File(directory, jsonAttachments.getString(i));
+                attachments.add(attachment);
+                attachmentSizes.add(jsonAttachmentSizes != null
+                        ? jsonAttachmentSizes.getLong(i)
+                        : attachment.length());
+            }
+
+            return new OutboxReport(json.getString(KEY_ID),
+                                    json.getLong(KEY_CREATED_AT),
+                                    json.getInt(KEY_ATTEMPTS),
+                                    json.optString(KEY_TITLE, null),
+                                    json.optString(KEY_MESSAGE, null),
+                                    json.optString(KEY_SUBCATEGORY, null),
+                                    data,
+                                    attachments,
+                                    attachmentSizes,
+                                    directory);
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Could not read report " + file, e);
+            return null;
+        }
+    }
+
+    @NonNull
+    @WorkerThread
+    private static JSONObject readJson(@NonNull File file) throws IOException, JSONException {
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            inputStream = AtRestEncryption.unwrap(inputStream);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return new JSONObject(bytes.toString("UTF-8"));
+        } finally {
+            Utils.closeQuietly(inputStream);
+        }
+    }
+
+    @WorkerThread
+    private static void writeReportFile(@NonNull File directory, @NonNull JSONObject json) throws IOException {
+        File temp = new File(directory, REPORT_FILE_TEMP);
+        OutputStream outputStream = new FileOutputStream(temp);
+        try {
+            outputStream = AtRestEncryption.wrap(outputStream);
+            outputStream.write(json.toString().getBytes("UTF-8"));
+            outputStream.close();
+            outputStream = null;
+        } finally {
+            Utils.closeQuietly(outputStream);
+        }
+        if (!temp.renameTo(new File(directory, REPORT_FILE))) {
+            throw new IOException("Could not commit " + temp);
+        }
+    }
+
+    @NonNull
+    private static String getFileName(@NonNull Uri uri) {
+        String name = uri.getLastPathSegment();
+        return name != null ? name.replaceAll("[^A-Za-z0-9._-]", "_") : "attachment";
+    }
+
+    @NonNull
+    private static File getDirectory(@NonNull Context context) {
+        return new File(context.getFilesDir(), DIRECTORY);
+    }
+
+    private static void deleteRecursively(@NonNull File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            Log.e(TAG, "Could not delete " + file);
+        }
+    }
+}
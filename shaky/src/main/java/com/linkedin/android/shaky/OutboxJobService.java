@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+
+import java.util.concurrent.Future;
+
+/**
+ * Drains the {@link Outbox} when JobScheduler decides the transport's constraints are met.
+ * Declared in the library manifest; apps don't need to use it directly.
+ */
+public class OutboxJobService extends JobService {
+    private Future<?> drain;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        drain = ShakyExecutor.get().submit(new Runnable() {
+            @Override
+            public void run() {
+                boolean done = Outbox.drain(getApplicationContext());
+                if (!Thread.currentThread().isInterrupted()) {
+                    jobFinished(params, !done);
+                }
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        if (drain != null) {
+            drain.cancel(true);
+        }
+        // constraints no longer met, try again later
+        return true;
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A report waiting in the outbox of an {@link OutboxShakeDelegate}, as passed to an
+ * {@link OutboxTransport}. Attachments have been copied into the outbox, so they stay available
+ * until the report is sent.
+ */
+public final class OutboxReport {
+    private final String id;
+    private final long createdAtMillis;
+    private final int attempts;
+    @Nullable
+    private final String title;
+    @Nullable
+    private final String message;
+    @Nullable
+    private final String subcategory;
+    private final Map<String, String> data;
+    private final List<File> attachments;
+    private final List<Long> attachmentSizes;
+    private final File directory;
+
+    OutboxReport(@NonNull String id,
+                 long createdAtMillis,
+                 int attempts,
+                 @Nullable String title,
+                 @Nullable String message,
+                 @Nullable String subcategory,
+                 @NonNull Map<String, String> data,
+                 @NonNull List<File> attachments,
+                 @NonNull List<Long> attachmentSizes,
+                 @NonNull File directory) {
+        this.id = id;
+        this.createdAtMillis = createdAtMillis;
+        this.attempts = attempts;
+        this.title = title;
+        this.message = message;
+        this.subcategory = subcategory;
+        this.data = Collections.unmodifiableMap(data);
+        this.attachments = Collections.unmodifiableList(attachments);
+        this.attachmentSizes = attachmentSizes;
+        this.directory = directory;
+    }
+
+    /**
+     * @return an id that is unique to this report and stays the same across retries
+     */
+    @NonNull
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return when the report was submitted, in milliseconds since the epoch
+     */
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    /**
+     * @return the number of earlier sends of this report that failed
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    @Nullable
+    public String getTitle() {
+        return title;
+    }
+
+    @Nullable
+    public String getMessage() {
+        return message;
+    }
+
+    @Nullable
+    public String getSubcategory() {
+        return subcategory;
+    }
+
+    /**
+     * @return the custom data of the {@link Result}, with values converted to Strings
+     */
+    @NonNull
+    public Map<String, String> getData() {
+        return data;
+    }
+
+    /**
+     * @return the number of attachments, screenshot first if there is one
+     */
+    public int getAttachmentCount() {
+        return attachments.size();
+    }
+
+    /**
+     * @return the name of the attachment file
+     */
+    @NonNull
+    public String getAttachmentName(int index) {
+        return attachments.get(index).getName();
+    }
+
+    /**
+     * @return the size of the attachment's content in bytes
+     */
+    public long getAttachmentSize(int index) {
+        return attachmentSizes.get(index);
+    }
+
+    /**
+     * Opens the attachment for reading. Use this rather than reading the file directly, since the
+     * outbox may be encrypted at rest.
+     */
+    @NonNull
+    @WorkerThread
+    public InputStream openAttachment(int index) throws IOException {
+        InputStream inputStream = new FileInputStream(attachments.get(index));
+        try {
+            return AtRestEncryption.unwrap(inputStream);
+        } catch (IOException e) {
+            Utils.closeQuietly(inputStream);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the outbox directory of this report, which transports may use for their own state
+     */
+    @NonNull
+    File getDirectory() {
+        return directory;
+    }
+}
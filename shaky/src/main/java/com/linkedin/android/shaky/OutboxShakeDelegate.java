@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.app.Activity;
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.io.IOException;
+
+/**
+ * {@link ShakeDelegate} that saves submitted feedback to an outbox on disk, and sends it with an
+ * {@link OutboxTransport} in the background once the device is online (and on an unmetered network
+ * or charging, if the transport asks for it). Failed sends are retried with exponential backoff,
+ * also after the app has been restarted.
+ * <p/>
+ * Submitting only waits for the report to be saved, so testers can file reports while offline.
+ */
+public class OutboxShakeDelegate extends ShakeDelegate {
+    private static final String TAG = OutboxShakeDelegate.class.getSimpleName();
+
+    public OutboxShakeDelegate(@NonNull OutboxTransport transport) {
+        Outbox.setTransport(transport);
+    }
+
+    @Override
+    public final boolean shouldSubmitAsync() {
+        return true;
+    }
+
+    @Override
+    @WorkerThread
+    public void submitAsync(@NonNull Context context, @NonNull Result result, @NonNull SubmitCallback callback) {
+        try {
+            Outbox.enqueue(context, result);
+            callback.onSuccess();
+        } catch (IOException e) {
+            callback.onFailure(e);
+        }
+    }
+
+    /**
+     * Not used, since {@link #shouldSubmitAsync()} is always true.
+     */
+    @Override
+    public final void submit(@NonNull Activity activity, @NonNull Result result) {
+        Log.e(TAG, "submit() called on an OutboxShakeDelegate");
+    }
+}
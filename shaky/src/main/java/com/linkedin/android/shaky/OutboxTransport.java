@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends reports from the outbox of an {@link OutboxShakeDelegate} to a server, or anywhere else
+ * reports should end up.
+ * <p/>
+ * The outbox calls {@link #send(List)} from a background job once the constraints below are met.
+ * Reports are only removed from the outbox once a batch has been sent successfully, so a send may
+ * be repeated after a crash and servers should de-duplicate by {@link OutboxReport#getId()}.
+ */
+public abstract class OutboxTransport {
+    private static final long DEFAULT_INITIAL_BACKOFF_MS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Sends a batch of reports. Called on a background thread.
+     *
+     * @param reports between one and {@link #getMaxBatchSize()} reports, oldest first
+     * @throws IOException if the batch could not be sent and should be retried later
+     */
+    @WorkerThread
+    public abstract void send(@NonNull List<OutboxReport> reports) throws IOException;
+
+    /**
+     * @return the maximum number of reports to pass to a single {@link #send(List)} call
+     */
+    public int getMaxBatchSize() {
+        return 10;
+    }
+
+    /**
+     * @return the number of failed sends after which a report is dropped from the outbox
+     */
+    public int getMaxAttempts() {
+        return 10;
+    }
+
+    /**
+     * @return the delay before the first retry, doubled after each failure
+     */
+    public long getInitialBackoffMillis() {
+        return DEFAULT_INITIAL_BACKOFF_MS;
+    }
+
+    /**
+     * @return true to only send on unmetered networks, e.g. because reports are large
+     */
+    public boolean requiresUnmeteredNetwork() {
+        return false;
+    }
+
+    /**
+     * @return true to only send while the device is charging
+     */
+    public boolean requiresCharging() {
+        return false;
+    }
+}
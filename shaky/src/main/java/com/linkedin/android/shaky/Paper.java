@@ -18,71 +18,307 @@ package com.linkedin.android.shaky;
 import android.app.Activity;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.CornerPathEffect;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
 import android.os.Parcel;
 import android.os.Parcelable;
+import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.widget.AppCompatImageView;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.ContextThemeWrapper;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 import android.view.Window;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 
 /**
  * Drawable view on an image.
+ * <p/>
+ * Two fingers zoom and pan the image and the drawing together. The strokes are always kept in the
+ * coordinates they have when the view is not zoomed, and large images are drawn from
+ * {@link ImageTiles} when zoomed in further than the decoded image's resolution.
  */
 public class Paper extends AppCompatImageView {
 
     private static final float THIN_STROKE_WIDTH = 12f;
     private static final float THICK_STROKE_WIDTH = 48f;
     private static final int PATH_SMOOTH = 50;
+    /** Size on screen of the blocks the pixelate brush turns the image into. */
+    private static final float MOSAIC_BLOCK_SIZE = 16f;
+    /** Points closer than this to the simplified stroke are dropped, well under the stroke width. */
+    private static final float SIMPLIFY_TOLERANCE = 1f;
+    /**
+     * Number of recent strokes kept as separate paths that can be undone on their own. Older ones
+     * are merged into the checkpoint paths.
+     */
+    private static final int MAX_UNDOABLE_STROKES = 32;
+    /** How far from the finger, on top of half their width, strokes are erased. */
+    private static final float ERASER_RADIUS = 12f;
+    /** Size of the cells of {@link #strokeIndex}, about the size of a fingertip. */
+    private static final float INDEX_CELL_SIZE = 64f;
+    /** How far the view can be zoomed in. */
+    private static final float MAX_ZOOM = 8f;
+    /** A crop smaller than this either way, e.g. from a tap, removes the crop instead. */
+    private static final float MIN_CROP_SIZE = 48f;
+    private static final float CROP_BORDER_WIDTH = 4f;
+    private static final int CROP_SHADE_COLOR = 0x99000000;
+    /** Whether a crop rect, as four floats, comes before the strokes in the encoded annotations. */
+    private static final byte ANNOTATIONS_HAS_CROP = 1;
+
+    /** Checkpoints of all strokes that are no longer in {@link #recentStrokes}. */
+    private final Path thinPath = new Path();
+    private final Path thickPath = new Path();
+    private final Path pixelatePath = new Path();
+    private final ArrayDeque<Stroke> recentStrokes = new ArrayDeque<>();
+
+    private final Paint thinPaint = createPaint(StrokeBuffer.BRUSH_THIN, 1f);
+    private final Paint thickPaint = createPaint(StrokeBuffer.BRUSH_THICK, 1f);
+    private final Paint pixelatePaint = createPaint(StrokeBuffer.BRUSH_PIXELATE, 1f);
+    /** Draws pixelated strokes under what is already in the layer, i.e. under the white strokes. */
+    private final Paint pixelateUnderPaint = createPaint(StrokeBuffer.BRUSH_PIXELATE, 1f);
+
+    private int brush = StrokeBuffer.BRUSH_THIN;
+    private boolean isErasing;
+    private boolean hasErased;
+
+    /** Maps the unzoomed drawing onto the view. */
+    private final Matrix zoomMatrix = new Matrix();
+    private final Matrix inverseZoomMatrix = new Matrix();
+    /** The zoom the layers were drawn at. They are stretched to the new zoom while it changes. */
+    private final Matrix layerZoomMatrix = new Matrix();
+    private final Matrix layerMatrix = new Matrix();
+    private final Matrix tileMatrix = new Matrix();
+    private final float[] matrixValues = new float[9];
+    private final float[] focus = new float[2];
+    private final Paint layerPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final ScaleGestureDetector scaleDetector;
+    private boolean isZooming;
+    @Nullable
+    private ImageTiles imageTiles;
+
+    private boolean isCropping;
+    /** The part of the image to keep, in the same coordinates as the strokes. */
+    @Nullable
+    private RectF cropRect;
+    private float cropStartX;
+    private float cropStartY;
+    private final RectF cropBounds = new RectF();
+    private final Paint cropShadePaint = new Paint();
+    private final Paint cropBorderPaint = new Paint();
+
+    /** Finds the stroke under the eraser without looking at every segment. */
+    private final StrokeIndex strokeIndex =
+            new StrokeIndex(INDEX_CELL_SIZE, THIN_STROKE_WIDTH, THICK_STROKE_WIDTH);
+    /** Erased strokes that can be put back by {@link #undo()}, most recent last. */
+    private final ArrayDeque<Erasure> erasures = new ArrayDeque<>();
+    /** Whether strokes were erased since the paths were last made, which happens once per frame. */
+    private boolean arePathsStale;
+    /** Where strokes were erased since the layers were last drawn, in the strokes' coordinates. */
+    private final RectF erasedBounds = new RectF();
+
+    /** The image and placement the pixelate paints' mosaic was made for. */
+    @Nullable
+    private Drawable mosaicDrawable;
+    private final Matrix mosaicMatrix = new Matrix();
+    /** Reused by {@link #updateMosaic()} every frame, to compare with {@link #mosaicMatrix}. */
+    private final Matrix drawableToViewMatrix = new Matrix();
+
+    /**
+     * The stroke being drawn, which is the only one drawn with its path every frame. The others are
+     * drawn once into the layers below, keeping the pixelated strokes under the thick ones and those
+     * under the thin ones.
+     */
+    @Nullable
+    private Stroke activeStroke;
+    @Nullable
+    private Bitmap thickLayer;
+    @Nullable
+    private Bitmap thinLayer;
+    private boolean areLayersDirty;
 
-    private Path thinPath = new Path();
-    private Path thickPath = new Path();
+    /** Points touched by the active stroke since the last frame, only valid if it is scheduled. */
+    private final RectF pendingBounds = new RectF();
+    private final Rect dirtyRect = new Rect();
+    private boolean isFrameScheduled;
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            isFrameScheduled = false;
+            // the corner effect also reshapes the previous segment
+            float padding = THICK_STROKE_WIDTH / 2 + PATH_SMOOTH + 1;
+            pendingBounds.inset(-padding, -padding);
+            zoomMatrix.mapRect(pendingBounds);
+            pendingBounds.roundOut(dirtyRect);
+            invalidate(dirtyRect);
+        }
+    };
 
-    private Paint thinPaint = new Paint();
-    private Paint thickPaint = new Paint();
+    /**
+     * Save the movement events so we can handle saving & restoring the view
+     */
+    private StrokeBuffer strokes = new StrokeBuffer();
 
-    private Path currentBrush;
+    @Nullable
+    private OnChangeListener onChangeListener;
 
     /**
-     * Save the lists of movement events so we can handle saving & restoring the view
+     * Notified when a stroke is finished, undone or cleared, but not while it is being drawn.
      */
-    private List<PathEvent> pathEvents = new ArrayList<>();
+    interface OnChangeListener {
+        void onChange(@NonNull Paper paper);
+    }
 
     public Paper(@NonNull Context context, @NonNull AttributeSet attrs) {
         super(context, attrs);
 
-        // red brush for marking up bugs
-        thinPaint.setColor(Color.RED);
-        thinPaint.setAntiAlias(true);
-        thinPaint.setStrokeWidth(THIN_STROKE_WIDTH);
-        thinPaint.setStyle(Paint.Style.STROKE);
-        thinPaint.setStrokeJoin(Paint.Join.ROUND);
-        thinPaint.setPathEffect(new CornerPathEffect(PATH_SMOOTH));
+        pixelateUnderPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_OVER));
+        cropShadePaint.setColor(CROP_SHADE_COLOR);
+        cropBorderPaint.setColor(Color.WHITE);
+        cropBorderPaint.setStyle(Paint.Style.STROKE);
+        cropBorderPaint.setStrokeWidth(CROP_BORDER_WIDTH);
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                float zoom = getZoom();
+                float factor = Math.max(1f / zoom, Math.min(MAX_ZOOM / zoom, detector.getScaleFactor()));
+                zoomMatrix.postScale(factor, factor, detector.getFocusX(), detector.getFocusY());
+                constrainZoom();
+                invalidate();
+                return true;
+            }
+        });
+    }
+
+    /**
+     * @param scale how much larger the strokes are drawn than on screen
+     */
+    @NonNull
+    private static Paint createPaint(int brush, float scale) {
+        Paint paint = new Paint();
+        paint.setAntiAlias(true);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeJoin(Paint.Join.ROUND);
+        paint.setPathEffect(new CornerPathEffect(PATH_SMOOTH * scale));
+        if (brush == StrokeBuffer.BRUSH_PIXELATE) {
+            // the mosaic is set as the shader once there is an image, keep the blocks sharp
+            paint.setColor(Color.GRAY);
+            paint.setFilterBitmap(false);
+            paint.setStrokeWidth(THICK_STROKE_WIDTH * scale);
+        } else {
+            // red brush for marking up bugs, white brush to white-out sensitive information
+            boolean isThin = brush == StrokeBuffer.BRUSH_THIN;
+            paint.setColor(getStrokeColor(isThin));
+            paint.setStrokeWidth(getStrokeWidth(isThin) * scale);
+        }
+        return paint;
+    }
+
+    @ColorInt
+    static int getStrokeColor(boolean isThin) {
+        return isThin ? Color.RED : Color.WHITE;
+    }
+
+    static float getStrokeWidth(boolean isThin) {
+        return isThin ? THIN_STROKE_WIDTH : THICK_STROKE_WIDTH;
+    }
+
+    /**
+     * @return the size, in pixels on screen, of the blocks the pixelate brush makes
+     */
+    static float getMosaicBlockSize() {
+        return MOSAIC_BLOCK_SIZE;
+    }
 
-        // white brush to white-out sensitive information
-        thickPaint = new Paint(thinPaint);
-        thickPaint.setStrokeWidth(THICK_STROKE_WIDTH);
-        thickPaint.setColor(Color.WHITE);
+    /**
+     * Makes a shader that shows the image in large blocks, by sampling it down and scaling it back
+     * up without filtering. Drawing a stroke with it pixelates the image under the stroke.
+     *
+     * @param blockSize the size of the blocks in the image's pixels
+     * @param imageToCanvas maps the image's pixels onto the canvas the shader will be drawn on
+     * @return the shader, or null if the image can't be sampled
+     */
+    @Nullable
+    static Shader createMosaicShader(@NonNull Bitmap image, float blockSize, @NonNull Matrix imageToCanvas) {
+        int width = Math.max(1, Math.round(image.getWidth() / blockSize));
+        int height = Math.max(1, Math.round(image.getHeight() / blockSize));
+        Bitmap mosaic;
+        try {
+            mosaic = Bitmap.createScaledBitmap(image, width, height, true);
+        } catch (RuntimeException e) {
+            // e.g. a hardware bitmap
+            return null;
+        }
+        BitmapShader shader = new BitmapShader(mosaic, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        Matrix localMatrix = new Matrix(imageToCanvas);
+        localMatrix.preScale(image.getWidth() / (float) width, image.getHeight() / (float) height);
+        shader.setLocalMatrix(localMatrix);
+        return shader;
+    }
 
-        // set default drawing path
-        currentBrush = thinPath;
+    /**
+     * Draws the strokes the way Paper does, with the thick ones under the thin ones. Safe to call
+     * from any thread. Pixelated strokes are left out.
+     */
+    static void drawStrokes(@NonNull Canvas canvas, @NonNull StrokeBuffer strokes) {
+        drawStrokes(canvas, strokes, 1f, null);
+    }
+
+    /**
+     * @param strokeScale how much larger the strokes are drawn than on screen, for strokes that
+     *                    were mapped onto a larger image
+     * @param mosaic shader from {@link #createMosaicShader} for the pixelated strokes, which are
+     *               left out if it is null
+     */
+    static void drawStrokes(@NonNull Canvas canvas,
+                            @NonNull StrokeBuffer strokes,
+                            float strokeScale,
+                            @Nullable Shader mosaic) {
+        Path pixelateStrokes = new Path();
+        Path thickStrokes = new Path();
+        Path thinStrokes = new Path();
+        for (int i = 0; i < strokes.size(); i++) {
+            Path path = strokes.isPixelate(i) ? pixelateStrokes : strokes.isThin(i) ? thinStrokes : thickStrokes;
+            if (strokes.isMove(i)) {
+                path.moveTo(strokes.getX(i), strokes.getY(i));
+            } else {
+                path.lineTo(strokes.getX(i), strokes.getY(i));
+            }
+        }
+        if (mosaic != null) {
+            Paint pixelatePaint = createPaint(StrokeBuffer.BRUSH_PIXELATE, strokeScale);
+            pixelatePaint.setShader(mosaic);
+            canvas.drawPath(pixelateStrokes, pixelatePaint);
+        }
+        canvas.drawPath(thickStrokes, createPaint(StrokeBuffer.BRUSH_THICK, strokeScale));
+        canvas.drawPath(thinStrokes, createPaint(StrokeBuffer.BRUSH_THIN, strokeScale));
     }
 
     @Override
     protected Parcelable onSaveInstanceState() {
         Parcelable parcelable = super.onSaveInstanceState();
         PaperSavedState savedState = new PaperSavedState(parcelable);
-        savedState.pathEvents = pathEvents;
+        savedState.strokes = strokes;
+        savedState.cropRect = cropRect;
         return savedState;
     }
 
@@ -90,71 +326,781 @@ public class Paper extends AppCompatImageView {
     protected void onRestoreInstanceState(Parcelable state) {
         PaperSavedState savedState = (PaperSavedState) state;
         super.onRestoreInstanceState(savedState.getSuperState());
-        pathEvents = savedState.pathEvents;
+        strokes = savedState.strokes;
+        cropRect = savedState.cropRect;
         applyEvents();
         invalidate();
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        zoomMatrix.reset();
+        inverseZoomMatrix.reset();
+        releaseLayers();
+        allocateLayers(w, h);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // re-attached with the same size, which onSizeChanged won't report
+        if (thickLayer == null || thinLayer == null) {
+            allocateLayers(getWidth(), getHeight());
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (isFrameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            isFrameScheduled = false;
+        }
+        releaseLayers();
+        areLayersDirty = true;
+    }
+
+    private void allocateLayers(int w, int h) {
+        if (w > 0 && h > 0) {
+            try {
+                thickLayer = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+                thinLayer = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            } catch (OutOfMemoryError e) {
+                // draw every stroke every frame instead
+                releaseLayers();
+            }
+        }
+        areLayersDirty = true;
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
+        updatePaths();
+        int saveCount = canvas.save();
+        canvas.concat(zoomMatrix);
         super.onDraw(canvas);
-        canvas.drawPath(thickPath, thickPaint);
-        canvas.drawPath(thinPath, thinPaint);
+        canvas.restoreToCount(saveCount);
+        drawTiles(canvas);
+
+        updateMosaic();
+        if (thickLayer == null || thinLayer == null) {
+            saveCount = canvas.save();
+            canvas.concat(zoomMatrix);
+            drawStrokes(canvas, StrokeBuffer.BRUSH_PIXELATE);
+            drawStrokes(canvas, StrokeBuffer.BRUSH_THICK);
+            drawStrokes(canvas, StrokeBuffer.BRUSH_THIN);
+            canvas.restoreToCount(saveCount);
+            erasedBounds.setEmpty();
+            drawCrop(canvas);
+            return;
+        }
+
+        if (areLayersDirty) {
+            layerZoomMatrix.set(zoomMatrix);
+            thickLayer.eraseColor(Color.TRANSPARENT);
+            Canvas thickCanvas = createLayerCanvas(thickLayer);
+            drawStrokes(thickCanvas, StrokeBuffer.BRUSH_PIXELATE);
+            drawStrokes(thickCanvas, StrokeBuffer.BRUSH_THICK);
+            thinLayer.eraseColor(Color.TRANSPARENT);
+            drawStrokes(createLayerCanvas(thinLayer), StrokeBuffer.BRUSH_THIN);
+            areLayersDirty = false;
+        } else if (!erasedBounds.isEmpty()) {
+            repaintErased(thickLayer, thinLayer);
+        }
+        erasedBounds.setEmpty();
+
+        layerMatrix.reset();
+        if (layerZoomMatrix.invert(layerMatrix)) {
+            layerMatrix.postConcat(zoomMatrix);
+        }
+        drawActiveStroke(canvas, StrokeBuffer.BRUSH_PIXELATE, pixelatePaint);
+        canvas.drawBitmap(thickLayer, layerMatrix, layerPaint);
+        drawActiveStroke(canvas, StrokeBuffer.BRUSH_THICK, thickPaint);
+        canvas.drawBitmap(thinLayer, layerMatrix, layerPaint);
+        drawActiveStroke(canvas, StrokeBuffer.BRUSH_THIN, thinPaint);
+        drawCrop(canvas);
+    }
+
+    /**
+     * Shades what is cropped away and outlines what is kept.
+     */
+    private void drawCrop(@NonNull Canvas canvas) {
+        if (cropRect == null) {
+            return;
+        }
+        zoomMatrix.mapRect(cropBounds, cropRect);
+        int width = getWidth();
+        int height = getHeight();
+        canvas.drawRect(0, 0, width, cropBounds.top, cropShadePaint);
+        canvas.drawRect(0, cropBounds.bottom, width, height, cropShadePaint);
+        canvas.drawRect(0, cropBounds.top, cropBounds.left, cropBounds.bottom, cropShadePaint);
+        canvas.drawRect(cropBounds.right, cropBounds.top, width, cropBounds.bottom, cropShadePaint);
+        canvas.drawRect(cropBounds, cropBorderPaint);
+    }
+
+    private void drawActiveStroke(@NonNull Canvas canvas, int brush, @NonNull Paint paint) {
+        if (activeStroke != null && activeStroke.brush == brush) {
+            int saveCount = canvas.save();
+            canvas.concat(zoomMatrix);
+            canvas.drawPath(activeStroke.path, paint);
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    /**
+     * @return a canvas that draws into the layer at the zoom it was drawn at
+     */
+    @NonNull
+    private Canvas createLayerCanvas(@NonNull Bitmap layer) {
+        Canvas canvas = new Canvas(layer);
+        canvas.concat(layerZoomMatrix);
+        return canvas;
+    }
+
+    /**
+     * Draws the layers again where strokes were erased, leaving the rest of them as they are.
+     */
+    private void repaintErased(@NonNull Bitmap thickLayer, @NonNull Bitmap thinLayer) {
+        Canvas thickCanvas = createLayerCanvas(thickLayer);
+        thickCanvas.clipRect(erasedBounds);
+        thickCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        drawStrokes(thickCanvas, StrokeBuffer.BRUSH_PIXELATE);
+        drawStrokes(thickCanvas, StrokeBuffer.BRUSH_THICK);
+
+        Canvas thinCanvas = createLayerCanvas(thinLayer);
+        thinCanvas.clipRect(erasedBounds);
+        thinCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        drawStrokes(thinCanvas, StrokeBuffer.BRUSH_THIN);
+    }
+
+    /**
+     * Draws the tiles of the image that are sharper than the decoded image at the current zoom.
+     */
+    private void drawTiles(@NonNull Canvas canvas) {
+        Drawable drawable = getDrawable();
+        if (imageTiles == null || !(drawable instanceof BitmapDrawable)) {
+            return;
+        }
+        Bitmap image = ((BitmapDrawable) drawable).getBitmap();
+        if (image == null) {
+            return;
+        }
+
+        tileMatrix.set(getImageMatrix());
+        tileMatrix.postTranslate(getPaddingLeft(), getPaddingTop());
+        tileMatrix.postConcat(zoomMatrix);
+        tileMatrix.preScale(drawable.getIntrinsicWidth() / (float) imageTiles.getImageWidth(),
+                drawable.getIntrinsicHeight() / (float) imageTiles.getImageHeight());
+        imageTiles.draw(canvas, tileMatrix, getWidth(), getHeight(),
+                image.getWidth() / (float) imageTiles.getImageWidth());
+    }
+
+    /**
+     * Draws the strokes of one brush, leaving out the active stroke unless there are no layers.
+     */
+    private void drawStrokes(@NonNull Canvas canvas, int brush) {
+        boolean hasLayers = thickLayer != null && thinLayer != null;
+        Paint paint = getPaint(brush);
+        canvas.drawPath(getCheckpoint(brush), paint);
+        for (Stroke stroke : recentStrokes) {
+            if (stroke.brush == brush && (stroke != activeStroke || !hasLayers)) {
+                canvas.drawPath(stroke.path, paint);
+            }
+        }
+    }
+
+    @NonNull
+    private Paint getPaint(int brush) {
+        switch (brush) {
+            case StrokeBuffer.BRUSH_THIN:
+                return thinPaint;
+            case StrokeBuffer.BRUSH_PIXELATE:
+                return pixelatePaint;
+            default:
+                return thickPaint;
+        }
+    }
+
+    @NonNull
+    private Path getCheckpoint(int brush) {
+        switch (brush) {
+            case StrokeBuffer.BRUSH_THIN:
+                return thinPath;
+            case StrokeBuffer.BRUSH_PIXELATE:
+                return pixelatePath;
+            default:
+                return thickPath;
+        }
+    }
+
+    /**
+     * Makes the mosaic for the pixelate brush again if the image or its placement changed. The
+     * mosaic is a small copy of the image, so the brush costs no more to draw than the others.
+     */
+    private void updateMosaic() {
+        Drawable drawable = getDrawable();
+        drawableToViewMatrix.set(getImageMatrix());
+        drawableToViewMatrix.postTranslate(getPaddingLeft(), getPaddingTop());
+        if (drawable == mosaicDrawable && drawableToViewMatrix.equals(mosaicMatrix)) {
+            return;
+        }
+        mosaicDrawable = drawable;
+        mosaicMatrix.set(drawableToViewMatrix);
+
+        Shader mosaic = null;
+        if (drawable instanceof BitmapDrawable && ((BitmapDrawable) drawable).getBitmap() != null) {
+            Bitmap image = ((BitmapDrawable) drawable).getBitmap();
+            // the bitmap may be scaled for density to make up the drawable
+            Matrix imageToView = new Matrix(drawableToViewMatrix);
+            imageToView.preScale(drawable.getIntrinsicWidth() / (float) image.getWidth(),
+                    drawable.getIntrinsicHeight() / (float) image.getHeight());
+            float blockSize = MOSAIC_BLOCK_SIZE / Math.max(imageToView.mapRadius(1f), 0.001f);
+            mosaic = createMosaicShader(image, blockSize, imageToView);
+        }
+        pixelatePaint.setShader(mosaic);
+        pixelateUnderPaint.setShader(mosaic);
+        areLayersDirty = true;
+    }
+
+    /**
+     * Draws the finished active stroke into its layer, so it doesn't have to be drawn again.
+     */
+    private void commitActiveStroke() {
+        Stroke stroke = activeStroke;
+        activeStroke = null;
+        if (stroke != null) {
+            strokes.simplifyLastStroke(SIMPLIFY_TOLERANCE);
+            int start = strokes.getLastStrokeStart();
+            strokeIndex.addStroke(strokes, start);
+            stroke.path.rewind();
+            stroke.path.moveTo(strokes.getX(start), strokes.getY(start));
+            for (int i = start + 1; i < strokes.size(); i++) {
+                stroke.path.lineTo(strokes.getX(i), strokes.getY(i));
+            }
+        }
+        if (stroke == null || areLayersDirty) {
+            return;
+        }
+        if (stroke.brush == StrokeBuffer.BRUSH_THIN) {
+            if (thinLayer != null) {
+                createLayerCanvas(thinLayer).drawPath(stroke.path, thinPaint);
+            }
+        } else if (thickLayer != null) {
+            createLayerCanvas(thickLayer).drawPath(stroke.path,
+                    stroke.brush == StrokeBuffer.BRUSH_PIXELATE ? pixelateUnderPaint : thickPaint);
+        }
+    }
+
+    private void releaseLayers() {
+        if (thickLayer != null) {
+            thickLayer.recycle();
+            thickLayer = null;
+        }
+        if (thinLayer != null) {
+            thinLayer.recycle();
+            thinLayer = null;
+        }
     }
 
     @Override
     public boolean onTouchEvent(@NonNull MotionEvent event) {
+        scaleDetector.onTouchEvent(event);
+        if (isZooming || event.getActionMasked() == MotionEvent.ACTION_POINTER_DOWN) {
+            return onZoomTouchEvent(event);
+        }
+        if (zoomMatrix.isIdentity()) {
+            return onDrawingTouchEvent(event);
+        }
+
+        MotionEvent unzoomed = MotionEvent.obtain(event);
+        unzoomed.transform(inverseZoomMatrix);
+        try {
+            return onDrawingTouchEvent(unzoomed);
+        } finally {
+            unzoomed.recycle();
+        }
+    }
+
+    /**
+     * Pans with the fingers once a second one is down, until they are all lifted. The pinch itself
+     * is handled by {@link #scaleDetector}.
+     */
+    private boolean onZoomTouchEvent(@NonNull MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_POINTER_DOWN:
+                if (!isZooming) {
+                    // the first finger started a stroke it wasn't meant to
+                    discardActiveStroke();
+                    isZooming = true;
+                }
+                getFocus(event, focus);
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+                getFocus(event, focus);
+                break;
+            case MotionEvent.ACTION_MOVE:
+                float lastFocusX = focus[0];
+                float lastFocusY = focus[1];
+                getFocus(event, focus);
+                zoomMatrix.postTranslate(focus[0] - lastFocusX, focus[1] - lastFocusY);
+                constrainZoom();
+                invalidate();
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                isZooming = false;
+                // draw the layers sharp at the new zoom
+                areLayersDirty = true;
+                invalidate();
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Puts the average position of the fingers that stay down into the array.
+     */
+    private static void getFocus(@NonNull MotionEvent event, @NonNull float[] focus) {
+        int liftedIndex = event.getActionMasked() == MotionEvent.ACTION_POINTER_UP ? event.getActionIndex() : -1;
+        float sumX = 0;
+        float sumY = 0;
+        int count = 0;
+        for (int i = 0; i < event.getPointerCount(); i++) {
+            if (i != liftedIndex) {
+                sumX += event.getX(i);
+                sumY += event.getY(i);
+                count++;
+            }
+        }
+        focus[0] = count > 0 ? sumX / count : 0;
+        focus[1] = count > 0 ? sumY / count : 0;
+    }
+
+    /**
+     * Keeps the zoomed drawing covering the whole view.
+     */
+    private void constrainZoom() {
+        zoomMatrix.getValues(matrixValues);
+        float zoom = matrixValues[Matrix.MSCALE_X];
+        matrixValues[Matrix.MTRANS_X] = Math.max(getWidth() * (1 - zoom), Math.min(0, matrixValues[Matrix.MTRANS_X]));
+        matrixValues[Matrix.MTRANS_Y] = Math.max(getHeight() * (1 - zoom), Math.min(0, matrixValues[Matrix.MTRANS_Y]));
+        zoomMatrix.setValues(matrixValues);
+        zoomMatrix.invert(inverseZoomMatrix);
+    }
+
+    private float getZoom() {
+        zoomMatrix.getValues(matrixValues);
+        return matrixValues[Matrix.MSCALE_X];
+    }
+
+    /**
+     * Removes the stroke that is being drawn, as if it was never started.
+     */
+    private void discardActiveStroke() {
+        if (activeStroke == null) {
+            return;
+        }
+        strokes.removeLastStroke();
+        recentStrokes.removeLast();
+        activeStroke = null;
+        invalidate();
+    }
+
+    private boolean onDrawingTouchEvent(@NonNull MotionEvent event) {
+        if (isCropping) {
+            return onCropTouchEvent(event);
+        }
+        if (isErasing) {
+            return onEraserTouchEvent(event);
+        }
+
         float eventX = event.getX();
         float eventY = event.getY();
 
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
-                currentBrush.moveTo(eventX, eventY);
-                pathEvents.add(new PathEvent(isThinBrush(), true, eventX, eventY));
+                commitActiveStroke();
+                updatePaths();
+                activeStroke = startStroke(brush);
+                activeStroke.path.moveTo(eventX, eventY);
+                strokes.add(brush, true, eventX, eventY);
+                includeInFrame(eventX, eventY);
                 break;
             case MotionEvent.ACTION_MOVE:
-                currentBrush.lineTo(eventX, eventY);
-                pathEvents.add(new PathEvent(isThinBrush(), false, eventX, eventY));
+                if (activeStroke == null) {
+                    return false;
+                }
+                int lastIndex = strokes.size() - 1;
+                includeInFrame(strokes.getX(lastIndex), strokes.getY(lastIndex));
+                // fast strokes are batched, with most of the points only in the history
+                for (int i = 0; i < event.getHistorySize(); i++) {
+                    addPoint(event.getHistoricalX(i), event.getHistoricalY(i));
+                }
+                addPoint(eventX, eventY);
                 break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                commitActiveStroke();
+                checkpointOldStrokes();
+                invalidate();
+                notifyChanged();
+                return true;
             default:
                 return false;
         }
 
-        invalidate(); // force repaint
         return true;
     }
 
+    private boolean onEraserTouchEvent(@NonNull MotionEvent event) {
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                commitActiveStroke();
+                hasErased = false;
+                eraseAt(event.getX(), event.getY());
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                for (int i = 0; i < event.getHistorySize(); i++) {
+                    eraseAt(event.getHistoricalX(i), event.getHistoricalY(i));
+                }
+                eraseAt(event.getX(), event.getY());
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (hasErased) {
+                    notifyChanged();
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Drags out the part of the image to keep, from where the finger went down to where it is.
+     */
+    private boolean onCropTouchEvent(@NonNull MotionEvent event) {
+        float x = Math.max(0, Math.min(getWidth(), event.getX()));
+        float y = Math.max(0, Math.min(getHeight(), event.getY()));
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                commitActiveStroke();
+                cropStartX = x;
+                cropStartY = y;
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (cropRect == null) {
+                    cropRect = new RectF();
+                }
+                cropRect.set(Math.min(cropStartX, x), Math.min(cropStartY, y),
+                        Math.max(cropStartX, x), Math.max(cropStartY, y));
+                invalidate();
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (cropRect != null && (cropRect.width() < MIN_CROP_SIZE || cropRect.height() < MIN_CROP_SIZE)) {
+                    cropRect = null;
+                }
+                invalidate();
+                notifyChanged();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Erases every stroke under the point. The paths and the layers are only updated on the next
+     * frame, however many strokes are erased until then.
+     */
+    private void eraseAt(float x, float y) {
+        int start;
+        // the same size under the finger, however far the view is zoomed in
+        float radius = ERASER_RADIUS / getZoom();
+        while ((start = strokeIndex.findStroke(strokes, x, y, radius)) != -1) {
+            strokeIndex.removeStroke(strokes, start);
+            StrokeBuffer stroke = strokes.removeStroke(start);
+            erasures.addLast(new Erasure(start, stroke, strokes.countStrokes()));
+            if (erasures.size() > MAX_UNDOABLE_STROKES) {
+                erasures.removeFirst();
+            }
+            includeErased(stroke);
+            hasErased = true;
+        }
+    }
+
+    /**
+     * Adds where the erased stroke was drawn to the area to repaint on the next frame.
+     */
+    private void includeErased(@NonNull StrokeBuffer stroke) {
+        float left = Float.POSITIVE_INFINITY;
+        float top = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY;
+        float bottom = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < stroke.size(); i++) {
+            left = Math.min(left, stroke.getX(i));
+            top = Math.min(top, stroke.getY(i));
+            right = Math.max(right, stroke.getX(i));
+            bottom = Math.max(bottom, stroke.getY(i));
+        }
+        // same padding as the frame callback, which the corner effect needs too
+        float padding = THICK_STROKE_WIDTH / 2 + PATH_SMOOTH + 1;
+        erasedBounds.union(left - padding, top - padding, right + padding, bottom + padding);
+        includeInFrame(left, top);
+        includeInFrame(right, bottom);
+        arePathsStale = true;
+    }
+
+    private void addPoint(float x, float y) {
+        activeStroke.path.lineTo(x, y);
+        strokes.add(activeStroke.brush, false, x, y);
+        includeInFrame(x, y);
+    }
+
+    /**
+     * Adds the point to the area to repaint, which happens at most once per frame.
+     */
+    private void includeInFrame(float x, float y) {
+        if (isFrameScheduled) {
+            pendingBounds.union(x, y);
+        } else {
+            pendingBounds.set(x, y, x, y);
+            isFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    }
+
     /**
      * Clears the drawing.
      */
     public void clear() {
         thinPath.reset();
         thickPath.reset();
-        pathEvents.clear();
+        pixelatePath.reset();
+        recentStrokes.clear();
+        activeStroke = null;
+        areLayersDirty = true;
+        strokes.clear();
+        strokeIndex.clear();
+        erasures.clear();
+        arePathsStale = false;
+        erasedBounds.setEmpty();
+        cropRect = null;
         invalidate();
+        notifyChanged();
     }
 
+    /**
+     * Switches to the next brush: thin, then thick, then pixelate, then the eraser.
+     */
     public void toggleBrush() {
-        currentBrush = currentBrush == thinPath ? thickPath : thinPath;
+        if (isErasing) {
+            isErasing = false;
+            brush = StrokeBuffer.BRUSH_THIN;
+            return;
+        }
+        switch (brush) {
+            case StrokeBuffer.BRUSH_THIN:
+                brush = StrokeBuffer.BRUSH_THICK;
+                break;
+            case StrokeBuffer.BRUSH_THICK:
+                brush = StrokeBuffer.BRUSH_PIXELATE;
+                break;
+            default:
+                isErasing = true;
+                break;
+        }
     }
 
     /**
-     * @return true if we're using the thin currentBrush, false otherwise
+     * @return true if we're using the thin brush, false otherwise
      */
     public boolean isThinBrush() {
-        return currentBrush == thinPath;
+        return !isErasing && brush == StrokeBuffer.BRUSH_THIN;
+    }
+
+    /**
+     * @return true if we're using the pixelate brush, false otherwise
+     */
+    public boolean isPixelateBrush() {
+        return !isErasing && brush == StrokeBuffer.BRUSH_PIXELATE;
     }
 
     /**
-     * Undo's the last draw action.
+     * Switches between dragging out the part of the image to keep, and drawing.
+     */
+    public void toggleCrop() {
+        isCropping = !isCropping;
+    }
+
+    /**
+     * @return true if touching the image crops it, rather than drawing
+     */
+    public boolean isCropping() {
+        return isCropping;
+    }
+
+    /**
+     * @return the part of the image to keep, in the same coordinates as the strokes, or null if the
+     * image is not cropped
+     */
+    @Nullable
+    RectF getCropRect() {
+        return cropRect != null ? new RectF(cropRect) : null;
+    }
+
+    /**
+     * @return true if touching a stroke erases it, rather than drawing
+     */
+    public boolean isEraser() {
+        return isErasing;
+    }
+
+    /**
+     * Undo's the last draw action, or puts back the last erased stroke.
      */
     public void undo() {
+        updatePaths();
+        // nothing has been drawn since the stroke was erased if the count still matches
+        Erasure erasure = erasures.peekLast();
+        if (erasure != null && erasure.strokeCount == strokes.countStrokes()) {
+            erasures.removeLast();
+            strokes.insertStroke(erasure.start, erasure.stroke);
+            strokeIndex.insertStroke(strokes, erasure.start);
+            rebuildPaths();
+            areLayersDirty = true;
+            invalidate();
+            notifyChanged();
+            return;
+        }
+
         // undo to the last move event
-        for (int i = pathEvents.size() - 1; i >= 0; i--) {
-            if (pathEvents.remove(i).isMove) break;
+        if (!strokes.isEmpty()) {
+            strokeIndex.removeStroke(strokes, strokes.getLastStrokeStart());
+        }
+        strokes.removeLastStroke();
+        activeStroke = null;
+        areLayersDirty = true;
+        if (!recentStrokes.isEmpty()) {
+            recentStrokes.removeLast();
+        } else {
+            // everything undoable on its own has been undone, rebuild from the points so the
+            // strokes before the checkpoint can be undone too
+            rebuildPaths();
+        }
+        invalidate();
+        notifyChanged();
+    }
+
+    /**
+     * @return a copy of the strokes drawn so far, in view coordinates when not zoomed
+     */
+    @NonNull
+    StrokeBuffer copyStrokes() {
+        return strokes.copy();
+    }
+
+    /**
+     * @return the matrix mapping unzoomed view coordinates, i.e. those of the strokes, onto the
+     * pixels of the image drawable, or null if there is no image
+     */
+    @Nullable
+    Matrix getViewToDrawableMatrix() {
+        if (getDrawable() == null) {
+            return null;
+        }
+        Matrix drawableToView = new Matrix(getImageMatrix());
+        drawableToView.postTranslate(getPaddingLeft(), getPaddingTop());
+        Matrix viewToDrawable = new Matrix();
+        return drawableToView.invert(viewToDrawable) ? viewToDrawable : null;
+    }
+
+    /**
+     * Replaces the drawing, e.g. with one saved earlier.
+     *
+     * @param strokes the strokes, in view coordinates when not zoomed
+     */
+    void setStrokes(@NonNull StrokeBuffer strokes) {
+        this.strokes = strokes;
+        erasures.clear();
+        applyEvents();
+        invalidate();
+    }
+
+    /**
+     * Sets the tiles to draw the image from when zoomed in, releasing the previous ones.
+     */
+    void setImageTiles(@Nullable ImageTiles imageTiles) {
+        if (this.imageTiles != null) {
+            this.imageTiles.release();
+        }
+        this.imageTiles = imageTiles;
+        if (imageTiles != null) {
+            imageTiles.setListener(new ImageTiles.Listener() {
+                @Override
+                public void onTileLoaded() {
+                    invalidate();
+                }
+            });
+        }
+        invalidate();
+    }
+
+    void setOnChangeListener(@Nullable OnChangeListener onChangeListener) {
+        this.onChangeListener = onChangeListener;
+    }
+
+    /**
+     * @return the drawing and the crop in a compact binary form, or null if nothing has been drawn
+     * or cropped
+     */
+    @Nullable
+    byte[] encodeAnnotations() {
+        if (strokes.isEmpty() && cropRect == null) {
+            return null;
+        }
+        byte[] encodedStrokes = strokes.encode();
+        ByteBuffer buffer = ByteBuffer.allocate(1 + (cropRect != null ? 16 : 0) + encodedStrokes.length);
+        if (cropRect != null) {
+            buffer.put(ANNOTATIONS_HAS_CROP);
+            buffer.putFloat(cropRect.left).putFloat(cropRect.top).putFloat(cropRect.right).putFloat(cropRect.bottom);
+        } else {
+            buffer.put((byte) 0);
+        }
+        buffer.put(encodedStrokes);
+        return buffer.array();
+    }
+
+    /**
+     * Replaces the drawing and the crop with those from {@link #encodeAnnotations()}.
+     *
+     * @return false if the annotations couldn't be read, leaving the drawing unchanged
+     */
+    boolean decodeAnnotations(@NonNull byte[] annotations) {
+        RectF crop = null;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(annotations);
+            if (buffer.get() == ANNOTATIONS_HAS_CROP) {
+                crop = new RectF(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+            }
+            strokes = StrokeBuffer.decode(Arrays.copyOfRange(annotations, buffer.position(), annotations.length));
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            return false;
         }
+        cropRect = crop;
+        erasures.clear();
         applyEvents();
         invalidate();
+        return true;
+    }
+
+    private void notifyChanged() {
+        if (onChangeListener != null) {
+            onChangeListener.onChange(this);
+        }
     }
 
     /**
@@ -175,33 +1121,106 @@ public class Paper extends AppCompatImageView {
         return Utils.capture(this, window);
     }
 
+    @NonNull
+    private Stroke startStroke(int brush) {
+        Stroke stroke = new Stroke(brush);
+        recentStrokes.addLast(stroke);
+        return stroke;
+    }
+
+    /**
+     * Merges the oldest strokes into the checkpoint paths, so that only a bounded number of them
+     * are kept as separate paths.
+     */
+    private void checkpointOldStrokes() {
+        while (recentStrokes.size() > MAX_UNDOABLE_STROKES) {
+            Stroke stroke = recentStrokes.removeFirst();
+            getCheckpoint(stroke.brush).addPath(stroke.path);
+        }
+    }
+
     private void applyEvents() {
+        strokeIndex.rebuild(strokes);
+        rebuildPaths();
+        areLayersDirty = true;
+    }
+
+    /**
+     * Makes the paths again if strokes were erased since they were last made.
+     */
+    private void updatePaths() {
+        if (arePathsStale) {
+            rebuildPaths();
+        }
+    }
+
+    /**
+     * Makes the paths again from the points, keeping the last strokes undoable on their own. The
+     * layers aren't drawn again, callers mark them dirty or repaint them as needed.
+     */
+    private void rebuildPaths() {
+        arePathsStale = false;
         thickPath.reset();
         thinPath.reset();
-        for (PathEvent event : pathEvents) {
-            Path path = event.isThinPath ? thinPath : thickPath;
-            if (event.isMove) {
-                path.moveTo(event.x, event.y);
+        pixelatePath.reset();
+        recentStrokes.clear();
+        activeStroke = null;
+        Stroke stroke = null;
+        for (int i = 0; i < strokes.size(); i++) {
+            if (strokes.isMove(i) || stroke == null) {
+                checkpointOldStrokes();
+                stroke = startStroke(strokes.getBrush(i));
+                stroke.path.moveTo(strokes.getX(i), strokes.getY(i));
             } else {
-                path.lineTo(event.x, event.y);
+                stroke.path.lineTo(strokes.getX(i), strokes.getY(i));
             }
         }
+        checkpointOldStrokes();
+    }
+
+    /**
+     * A stroke taken out by the eraser, and where to put it back.
+     */
+    private static class Erasure {
+        final int start;
+        final StrokeBuffer stroke;
+        /** The number of strokes right after this one was erased. */
+        final int strokeCount;
+
+        Erasure(int start, @NonNull StrokeBuffer stroke, int strokeCount) {
+            this.start = start;
+            this.stroke = stroke;
+            this.strokeCount = strokeCount;
+        }
+    }
+
+    /**
+     * A single undoable stroke.
+     */
+    private static class Stroke {
+        final Path path = new Path();
+        final int brush;
+
+        Stroke(int brush) {
+            this.brush = brush;
+        }
     }
 
     private static class PaperSavedState extends View.BaseSavedState {
-        List<PathEvent> pathEvents;
+        StrokeBuffer strokes;
+        @Nullable
+        RectF cropRect;
 
         public PaperSavedState(Parcel source) {
             super(source);
-            int size = source.readInt();
-            pathEvents = new ArrayList<>(size);
-            for (int index = 0; index < size; index++) {
-                pathEvents.add(new PathEvent(
-                        source.readInt() == 0,
-                        source.readInt() == 0,
-                        source.readFloat(),
-                        source.readFloat()
-                ));
+            byte[] encoded = source.createByteArray();
+            try {
+                strokes = StrokeBuffer.decode(encoded);
+            } catch (IllegalArgumentException e) {
+                strokes = new StrokeBuffer();
+            }
+            if (source.readInt() != 0) {
+                cropRect = RectF.CREATOR.createFromParcel(source);
             }
         }
 
@@ -212,12 +1231,10 @@ public class Paper extends AppCompatImageView {
         @Override
         public void writeToParcel(Parcel out, int flags) {
             super.writeToParcel(out, flags);
-            out.writeInt(pathEvents.size());
-            for (PathEvent event : pathEvents) {
-                out.writeInt(event.isThinPath ? 0 : 1);
-                out.writeInt(event.isMove ? 0 : 1);
-                out.writeFloat(event.x);
-                out.writeFloat(event.y);
+            out.writeByteArray(strokes.encode());
+            out.writeInt(cropRect != null ? 1 : 0);
+            if (cropRect != null) {
+                cropRect.writeToParcel(out, flags);
             }
         }
 
@@ -232,18 +1249,4 @@ public class Paper extends AppCompatImageView {
             }
         };
     }
-
-    private static class PathEvent {
-        public final boolean isThinPath;
-        public final boolean isMove;
-        public final float x;
-        public final float y;
-
-        private PathEvent(boolean isThinPath, boolean isMove, float x, float y) {
-            this.isThinPath = isThinPath;
-            this.isMove = isMove;
-            this.x = x;
-            this.y = y;
-        }
-    }
 }
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.AsyncTask;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A feedback flow whose {@link FeedbackActivity} was opened before data collection finished. See
+ * {@link ShakeDelegate#shouldShowFeedbackImmediately()}.
+ * <p/>
+ * Holds the in-memory screenshot, so the UI can show it before it has been written to disk, and
+ * the running {@link CollectDataTask}, so submission can wait for it. Only one flow can be in
+ * progress at a time, so there is a single current instance.
+ */
+final class PendingFeedback {
+
+    @Nullable
+    private static PendingFeedback current;
+
+    @Nullable
+    private final Uri screenshotUri;
+    @Nullable
+    private Bitmap screenshot;
+    @NonNull
+    private final CollectDataTask task;
+
+    PendingFeedback(@Nullable Uri screenshotUri, @Nullable Bitmap screenshot, @NonNull CollectDataTask task) {
+        this.screenshotUri = screenshotUri;
+        this.screenshot = screenshot;
+        this.task = task;
+    }
+
+    @MainThread
+    static void setCurrent(@Nullable PendingFeedback pendingFeedback) {
+        current = pendingFeedback;
+    }
+
+    /**
+     * Removes and returns the current pending feedback.
+     */
+    @Nullable
+    @MainThread
+    static PendingFeedback takeCurrent() {
+        PendingFeedback pendingFeedback = current;
+        current = null;
+        return pendingFeedback;
+    }
+
+    /**
+     * @return the in-memory screenshot to show for the given Uri, or null if the Uri should be
+     * loaded from disk instead
+     */
+    @Nullable
+    @MainThread
+    static Bitmap getScreenshot(@Nullable Uri screenshotUri) {
+        if (current == null || current.screenshot == null || screenshotUri == null) {
+            return null;
+        }
+        return screenshotUri.equals(current.screenshotUri) ? current.screenshot : null;
+    }
+
+    /**
+     * Stops handing out the in-memory screenshot for the given Uri, e.g. because the file is about
+     * to be overwritten with an edited version.
+     *
+     * @return the pending feedback that was writing the screenshot, which the edit has to
+     * {@link #awaitScreenshot() wait for}, or null if there is nothing to wait for
+     */
+    @Nullable
+    @MainThread
+    static PendingFeedback detachScreenshot(@Nullable Uri screenshotUri) {
+        if (current == null || screenshotUri == null || !screenshotUri.equals(current.screenshotUri)) {
+            return null;
+        }
+        current.screenshot = null;
+        return current;
+    }
+
+    /**
+     * Blocks until the original screenshot has been written to disk, so an edit lands after it
+     * rather than before it. Returns immediately if it has already been written.
+     */
+    @WorkerThread
+    void awaitScreenshot() {
+        if (!isDone()) {
+            getResult();
+        }
+    }
+
+    /**
+     * @return true if the collection has finished or was cancelled
+     */
+    boolean isDone() {
+        return task.getStatus() == AsyncTask.Status.FINISHED || task.isCancelled();
+    }
+
+    /**
+     * @return the collected result if the collection has finished, null otherwise
+     */
+    @Nullable
+    Result getResultIfDone() {
+        return isDone() ? getResult() : null;
+    }
+
+    /**
+     * Blocks until the collection finishes.
+     *
+     * @return the collected result, or null if the collection failed or was cancelled
+     */
+    @Nullable
+    @WorkerThread
+    Result await() {
+        return getResult();
+    }
+
+    @Nullable
+    private Result getResult() {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stops the collection, e.g. because the user abandoned the report.
+     */
+    @MainThread
+    void cancel() {
+        screenshot = null;
+        task.cancelCollection();
+    }
+}
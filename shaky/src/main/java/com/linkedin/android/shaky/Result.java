@@ -21,6 +21,10 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Wrapper class for the data collected.
@@ -32,6 +36,7 @@ public class Result {
     private static final String SCREENSHOT_URI = PREFIX + ".screenshotUri";
     private static final String ATTACHMENTS = PREFIX + ".attachments";
     private static final String SUBCATEGORY = PREFIX + ".subcategory";
+    private static final String ATTACHMENT_REPORT = PREFIX + ".attachmentReport";
 
     private final Bundle data;
     private ArrayList<Uri> attachments;
@@ -93,6 +98,54 @@ public class Result {
         this.attachments = attachments;
     }
 
+    /**
+     * @return a description of each attachment that was shrunk or removed to fit the delegate's
+     * {@link ShakeDelegate#getAttachmentBudgetBytes() attachment budget}, or an empty list if none were
+     */
+    @NonNull
+    public List<String> getAttachmentReport() {
+        ArrayList<String> report = data.getStringArrayList(ATTACHMENT_REPORT);
+        return report != null ? report : new ArrayList<String>();
+    }
+
+    void setAttachmentReport(@NonNull ArrayList<String> report) {
+        data.putStringArrayList(ATTACHMENT_REPORT, report);
+    }
+
+    /**
+     * @return true if the key is one that this class uses to store its own fields in the Bundle
+     */
+    static boolean isReservedKey(@NonNull String key) {
+        return key.startsWith(PREFIX);
+    }
+
+    /**
+     * @return the custom data, i.e. everything but the fields of this class, with values converted to
+     * Strings for sending as text
+     */
+    @NonNull
+    Map<String, String> getCustomDataAsStrings() {
+        Map<String, String> strings = new LinkedHashMap<>();
+        for (String key : data.keySet()) {
+            Object value = isReservedKey(key) ? null : data.get(key);
+            if (value != null) {
+                strings.put(key, value instanceof Object[] ? Arrays.toString((Object[]) value) : String.valueOf(value));
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * Adds the data and attachments of the other result to this one. Values in the other result
+     * replace values under the same key in this one.
+     */
+    void merge(@NonNull Result other) {
+        ArrayList<Uri> mergedAttachments = new ArrayList<>(getAttachments());
+        mergedAttachments.addAll(other.getAttachments());
+        data.putAll(other.getData());
+        attachments = mergedAttachments;
+    }
+
     @Nullable
     public String getSubcategory() {
         return data.getString(SUBCATEGORY);
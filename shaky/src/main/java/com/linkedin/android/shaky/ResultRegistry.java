@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process registry of collected {@link Result} data, keyed by a small token.
+ * <p/>
+ * The feedback flow only passes the token through Intents and broadcasts, so large collector
+ * payloads are never copied through the binder (and can't hit TransactionTooLargeException). Each
+ * entry is also written to disk in the background, so it can be recovered if the process dies while
+ * {@link FeedbackActivity} is open.
+ * <p/>
+ * The disk copy uses {@link Parcel#marshall()}, which is only readable by the same build of the app,
+ * and is deleted once the entry is released.
+ */
+final class ResultRegistry {
+    private static final String TAG = ResultRegistry.class.getSimpleName();
+    private static final String DIRECTORY = "shaky_results";
+    private static final long MAX_FILE_AGE_MS = TimeUnit.DAYS.toMillis(1);
+
+    private static final Map<String, Bundle> RESULTS = new HashMap<>();
+
+    // prevent instantiation
+    private ResultRegistry() {}
+
+    /**
+     * Adds the data to the registry and starts writing it to disk.
+     *
+     * @return the token to look the data up with
+     */
+    @NonNull
+    @MainThread
+    static String register(@NonNull Context context, @NonNull Bundle data) {
+        final String token = UUID.randomUUID().toString();
+        synchronized (RESULTS) {
+            RESULTS.put(token, data);
+        }
+
+        // write a shallow copy, so the caller can keep reading the original on the main thread
+        final Bundle copy = new Bundle(data);
+        final File directory = getDirectory(context);
+        ShakyExecutor.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                pruneOldFiles(directory);
+                File file = new File(directory, token);
+                writeToDisk(copy, file);
+                // release() may have run, and tried to delete the file, before it was written
+                if (!isInMemory(token) && file.exists() && !file.delete()) {
+                    Log.e(TAG, "Could not delete released result: " + file);
+                }
+            }
+        });
+        return token;
+    }
+
+    /**
+     * @return true if the data for the token is available without touching the disk
+     */
+    static boolean isInMemory(@Nullable String token) {
+        if (token == null) {
+            return false;
+        }
+        synchronized (RESULTS) {
+            return RESULTS.containsKey(token);
+        }
+    }
+
+    /**
+     * @return the data for the token, if it is available without touching the disk
+     */
+    @Nullable
+    static Bundle peek(@Nullable String token) {
+        if (token == null) {
+            return null;
+        }
+        synchronized (RESULTS) {
+            return RESULTS.get(token);
+        }
+    }
+
+    /**
+     * @return the data for the token, read back from disk if this process didn't register it, or
+     * null if it can't be found
+     */
+    @Nullable
+    @WorkerThread
+    static Bundle load(@NonNull Context context, @Nullable String token) {
+        if (token == null) {
+            return null;
+        }
+
+        Bundle data = peek(token);
+        if (data != null) {
+            return data;
+        }
+
+        data = readFromDisk(new File(getDirectory(context), token));
+        if (data != null) {
+            data.setClassLoader(context.getClassLoader());
+        }
+        return data;
+    }
+
+    /**
+     * @return true if the data for the token is in memory or on disk
+     */
+    @WorkerThread
+    static boolean exists(@NonNull Context context, @Nullable String token) {
+        return token != null && (isInMemory(token) || new File(getDirectory(context), token).isFile());
+    }
+
+    /**
+     * Removes the data for the token from memory and disk.
+     */
+    static void release(@NonNull Context context, @Nullable String token) {
+        if (token == null) {
+            return;
+        }
+        synchronized (RESULTS) {
+            RESULTS.remove(token);
+        }
+
+        final File file = new File(getDirectory(context), token);
+        ShakyExecutor.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (file.exists() && !file.delete()) {
+                    Log.e(TAG, "Could not delete result: " + file);
+                }
+            }
+        });
+    }
+
+    @NonNull
+    private static File getDirectory(@NonNull Context context) {
+        return new File(context.getFilesDir(), DIRECTORY);
+    }
+
+    @WorkerThread
+    private static void writeToDisk(@NonNull Bundle data, @NonNull File file) {
+        File directory = file.getParentFile();
+        if (directory == null || (!directory.mkdirs() && !directory.exists())) {
+            Log.e(TAG, "Failed to create directory for results.");
+            return;
+        }
+
+        Parcel parcel = Parcel.obtain();
+        OutputStream outputStream = null;
+        try {
+            parcel.writeBundle(data);
+            outputStream = new FileOutputStream(file);
+            outputStream = AtRestEncryption.wrap(outputStream);
+            outputStream.write(parcel.marshall());
+            outputStream.close();
+            outputStream = null;
+        } catch (IOException | RuntimeException e) {
+            // e.g. a value that can't be parceled, the in-memory copy still works
+            Log.e(TAG, "Failed to write result to disk", e);
+            Utils.closeQuietly(outputStream);
+            outputStream = null;
+            if (file.exists() && !file.delete()) {
+                Log.e(TAG, "Could not delete partially written result: " + file);
+            }
+        } finally {
+            parcel.recycle();
+            Utils.closeQuietly(outputStream);
+        }
+    }
+
+    @Nullable
+    @WorkerThread
+    private static Bundle readFromDisk(@NonNull File file) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        Parcel parcel = Parcel.obtain();
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            inputStream = AtRestEncryption.unwrap(inputStream);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            parcel.unmarshall(bytes.toByteArray(), 0, bytes.size());
+            parcel.setDataPosition(0);
+            return parcel.readBundle(ResultRegistry.class.getClassLoader());
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Failed to read result from disk", e);
+            return null;
+        } finally {
+            parcel.recycle();
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    Log.e(TAG, e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes entries left behind by flows that never finished, e.g. because the app crashed.
+     */
+    @WorkerThread
+    private static void pruneOldFiles(@NonNull File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() - MAX_FILE_AGE_MS;
+        for (File file : files) {
+            if (file.lastModified() < cutoff && !file.delete()) {
+                Log.e(TAG, "Could not delete old result: " + file);
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link OutboxTransport} that uploads each report with a simple resumable protocol, so a failed
+ * upload of large attachments only resends what the server hasn't acknowledged yet.
+ * <p/>
+ * Every attachment is split into fixed-size chunks, each sent as
+ * {@code PUT <endpoint>/<report id>/attachments/<attachment index>/chunks/<chunk index>} with the
+ * chunk's SHA-256 (hex) in the {@value #HEADER_SHA_256} header. The server should verify the hash and
+ * answer with a 2xx status once the chunk is stored. Acknowledged chunks are recorded in the report's
+ * outbox entry and skipped on retries. Once all chunks are acknowledged, the report metadata is sent as
+ * {@code POST <endpoint>/<report id>} with a JSON body listing the attachments, their sizes and chunk
+ * counts, which completes the report.
+ */
+public class ResumableUploadTransport extends OutboxTransport {
+    private static final String TAG = ResumableUploadTransport.class.getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String ACK_FILE = "upload_acks";
+    private static final String ACK_TERMINATOR = ";";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int TIMEOUT_MS = 30 * 1000;
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    public static final String HEADER_SHA_256 = "X-Shaky-Chunk-SHA256";
+    public static final String HEADER_CHUNK_COUNT = "X-Shaky-Chunk-Count";
+
+    private final String endpoint;
+    private final int chunkSize;
+
+    public ResumableUploadTransport(@NonNull URL endpoint) {
+        this(endpoint, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ResumableUploadTransport(@NonNull URL endpoint, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        String url = endpoint.toString();
+        this.endpoint = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reports are uploaded one request at a time anyway, and a batch of one keeps a failure from
+     * counting against reports that were already complete.
+     */
+    @Override
+    public int getMaxBatchSize() {
+        return 1;
+    }
+
+    @Override
+    @WorkerThread
+    public void send(@NonNull List<OutboxReport> reports) throws IOException {
+        for (OutboxReport report : reports) {
+            upload(report);
+        }
+    }
+
+    /**
+     * Called before each request is sent. Subclasses can override this to add headers, e.g. for
+     * authentication, or change timeouts.
+     */
+    @WorkerThread
+    protected void onPrepareConnection(@NonNull HttpURLConnection connection) throws IOException {
+    }
+
+    @WorkerThread
+    private void upload(@NonNull OutboxReport report) throws IOException {
+        File ackFile = new File(report.getDirectory(), ACK_FILE);
+        Set<String> acks = readAcks(ackFile);
+        byte[] buffer = new byte[chunkSize];
+
+        Writer ackWriter = new OutputStreamWriter(new FileOutputStream(ackFile, true), UTF_8);
+        try {
+            for (int i = 0; i < report.getAttachmentCount(); i++) {
+                int chunkCount = getChunkCount(report.getAttachmentSize(i));
+                // read sequentially rather than seeking, since the attachment may be encrypted at rest
+                InputStream inputStream = report.openAttachment(i);
+                try {
+                    for (int chunk = 0; chunk < chunkCount; chunk++) {
+                        String ack = i + ":" + chunk;
+                        if (acks.contains(ack)) {
+                            skipChunk(inputStream);
+                            continue;
+                        }
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedIOException("Upload cancelled");
+                        }
+
+                        int length = readChunk(inputStream, buffer);
+                        sendChunk(report.getId(), i, chunk, chunkCount, buffer, length);
+
+                        // one terminated line per acknowledged chunk, so a torn last line is ignored
+                        ackWriter.write(ack + ACK_TERMINATOR + "\n");
+                        ackWriter.flush();
+                    }
+                } finally {
+                    Utils.closeQuietly(inputStream);
+                }
+            }
+        } finally {
+            Utils.closeQuietly(ackWriter);
+        }
+
+        complete(report);
+    }
+
+    @WorkerThread
+    private void sendChunk(@NonNull String reportId,
+                           int attachment,
+                           int chunk,
+                           int chunkCount,
+                           @NonNull byte[] buffer,
+                           int length) throws IOException {
+        URL url = new URL(endpoint + "/" + reportId + "/attachments/" + attachment + "/chunks/" + chunk);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("PUT");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(length);
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            connection.setRequestProperty(HEADER_SHA_256, sha256(buffer, length));
+            connection.setRequestProperty(HEADER_CHUNK_COUNT, String.valueOf(chunkCount));
+            onPrepareConnection(connection);
+
+            OutputStream outputStream = connection.getOutputStream();
+            try {
+                outputStream.write(buffer, 0, length);
+            } finally {
+                outputStream.close();
+            }
+            checkResponse(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @WorkerThread
+    private void complete(@NonNull OutboxReport report) throws IOException {
+        byte[] body;
+        try {
+            JSONArray attachments = new JSONArray();
+            for (int i = 0; i < report.getAttachmentCount(); i++) {
+                attachments.put(new JSONObject()
+                        .put("name", report.getAttachmentName(i))
+                        .put("size", report.getAttachmentSize(i))
+                        .put("chunks", getChunkCount(report.getAttachmentSize(i))));
+            }
+            body = new JSONObject()
+                    .put("id", report.getId())
+                    .put("createdAt", report.getCreatedAtMillis())
+                    .putOpt("title", report.getTitle())
+                    .putOpt("message", report.getMessage())
+                    .putOpt("subcategory", report.getSubcategory())
+                    .put("data", new JSONObject(report.getData()))
+                    .put("chunkSize", chunkSize)
+                    .put("attachments", attachments)
+                    .toString()
+                    .getBytes(UTF_8);
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint + "/" + report.getId()).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+            onPrepareConnection(connection);
+
+            OutputStream outputStream = connection.getOutputStream();
+            try {
+                outputStream.write(body);
+            } finally {
+                outputStream.close();
+            }
+            checkResponse(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private int getChunkCount(long size) {
+        // empty attachments still get one (empty) chunk, so the server knows about them
+        return (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+    }
+
+    private void skipChunk(@NonNull InputStream inputStream) throws IOException {
+        long remaining = chunkSize;
+        while (remaining > 0) {
+            long skipped = inputStream.skip(remaining);
+            if (skipped <= 0) {
+                // skip() may return 0 before the end of the stream, read() tells the difference
+                if (inputStream.read() == -1) {
+                    return;
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static void checkResponse(@NonNull HttpURLConnection connection) throws IOException {
+        int code = connection.getResponseCode();
+        if (code < 200 || code >= 300) {
+            throw new IOException(connection.getRequestMethod() + " " + connection.getURL() + " failed with HTTP " + code);
+        }
+    }
+
+    private static int readChunk(@NonNull InputStream inputStream, @NonNull byte[] buffer) throws IOException {
+        int length = 0;
+        int read;
+        while (length < buffer.length && (read = inputStream.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+        }
+        return length;
+    }
+
+    @NonNull
+    private static String sha256(@NonNull byte[] buffer, int length) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Android version provides SHA-256
+            throw new IllegalStateException(e);
+        }
+        digest.update(buffer, 0, length);
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    @NonNull
+    @WorkerThread
+    private static Set<String> readAcks(@NonNull File ackFile) {
+        Set<String> acks = new HashSet<>();
+        if (!ackFile.exists()) {
+            return acks;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(ackFile), UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.endsWith(ACK_TERMINATOR)) {
+                    acks.add(line.substring(0, line.length() - ACK_TERMINATOR.length()));
+                }
+            }
+        } catch (IOException e) {
+            // worst case the chunks are sent again
+            Log.e(TAG, "Could not read " + ackFile, e);
+        } finally {
+            Utils.closeQuietly(reader);
+        }
+        return acks;
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.text.InputType;
+import android.text.method.PasswordTransformationMethod;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.view.WindowManager;
+import android.widget.TextView;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hides sensitive parts of the screen in screenshots, before they are written anywhere.
+ * <p/>
+ * The view trees of the visible windows are walked once, on the main thread, when the screen is
+ * captured. Password fields, views marked with {@link #setSensitive(View, boolean)} and whole
+ * {@link WindowManager.LayoutParams#FLAG_SECURE} windows are found, and their on-screen bounds are
+ * filled in the captured bitmaps.
+ */
+public final class ScreenshotMasker {
+    private static final String TAG = ScreenshotMasker.class.getSimpleName();
+    private static final int MASK_COLOR = Color.BLACK;
+
+    static final ScreenshotMasker NONE = new ScreenshotMasker(Collections.<MaskedWindow>emptyList());
+
+    @NonNull
+    private final List<MaskedWindow> windows;
+
+    @VisibleForTesting
+    ScreenshotMasker(@NonNull List<MaskedWindow> windows) {
+        this.windows = windows;
+    }
+
+    /**
+     * Marks the view, and everything in it, to be hidden in screenshots. Password fields are hidden
+     * without being marked.
+     */
+    public static void setSensitive(@NonNull View view, boolean isSensitive) {
+        view.setTag(R.id.shaky_sensitive, isSensitive ? Boolean.TRUE : null);
+    }
+
+    /**
+     * Finds the sensitive areas in all of the activity's visible windows.
+     */
+    @NonNull
+    @MainThread
+    static ScreenshotMasker find(@NonNull Activity activity) {
+        List<MaskedWindow> windows = new ArrayList<>();
+        for (MultiWindowScreenshotCapture.ViewRootData rootView
+                : MultiWindowScreenshotCapture.getRootViews(activity)) {
+            windows.add(findInWindow(rootView._view, rootView._layoutParams.flags));
+        }
+        if (windows.isEmpty()) {
+            // the window list is read through reflection, fall back to the activity's own window
+            Window window = activity.getWindow();
+            windows.add(findInWindow(window.getDecorView(), window.getAttributes().flags));
+        }
+        return new ScreenshotMasker(windows);
+    }
+
+    @NonNull
+    @VisibleForTesting
+    static MaskedWindow findInWindow(@NonNull View root, int windowFlags) {
+        int[] location = new int[2];
+        root.getLocationOnScreen(location);
+        List<Rect> areas = new ArrayList<>();
+        if ((windowFlags & WindowManager.LayoutParams.FLAG_SECURE) != 0) {
+            areas.add(new Rect(0, 0, root.getWidth(), root.getHeight()));
+        } else {
+            findSensitiveViews(root, areas);
+        }
+        return new MaskedWindow(root, location[0], location[1], areas);
+    }
+
+    /**
+     * Adds the visible bounds of the sensitive views, relative to the window, to the list.
+     */
+    private static void findSensitiveViews(@NonNull View view, @NonNull List<Rect> areas) {
+        if (view.getVisibility() != View.VISIBLE) {
+            return;
+        }
+
+        if (isSensitive(view)) {
+            Rect area = new Rect();
+            if (view.getGlobalVisibleRect(area)) {
+                areas.add(area);
+            }
+            return;
+        }
+
+        if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                findSensitiveViews(viewGroup.getChildAt(i), areas);
+            }
+        }
+    }
+
+    private static boolean isSensitive(@NonNull View view) {
+        if (Boolean.TRUE.equals(view.getTag(R.id.shaky_sensitive))) {
+            return true;
+        }
+        if (view instanceof TextView) {
+            TextView textView = (TextView) view;
+            return isPasswordInputType(textView.getInputType())
+                    || textView.getTransformationMethod() instanceof PasswordTransformationMethod;
+        }
+        return false;
+    }
+
+    private static boolean isPasswordInputType(int inputType) {
+        int variation = inputType & (InputType.TYPE_MASK_CLASS | InputType.TYPE_MASK_VARIATION);
+        return variation == (InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PASSWORD)
+                || variation == (InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_VISIBLE_PASSWORD)
+                || variation == (InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_WEB_PASSWORD)
+                || variation == (InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_VARIATION_PASSWORD);
+    }
+
+    /**
+     * Masks a screenshot of a single window.
+     *
+     * @param root the root view of the window the bitmap was captured from
+     */
+    void maskWindow(@NonNull Bitmap bitmap, @NonNull View root) {
+        for (MaskedWindow window : windows) {
+            if (window.root == root) {
+                fill(bitmap, window.areas, 0, 0);
+            }
+        }
+    }
+
+    /**
+     * Masks a screenshot of all the windows drawn together, with the top-left most window at (0, 0).
+     */
+    void maskScreen(@NonNull Bitmap bitmap) {
+        if (windows.isEmpty()) {
+            return;
+        }
+
+        int minLeft = Integer.MAX_VALUE;
+        int minTop = Integer.MAX_VALUE;
+        for (MaskedWindow window : windows) {
+            minLeft = Math.min(minLeft, window.left);
+            minTop = Math.min(minTop, window.top);
+        }
+        for (MaskedWindow window : windows) {
+            fill(bitmap, window.areas, window.left - minLeft, window.top - minTop);
+        }
+    }
+
+    private static void fill(@NonNull Bitmap bitmap, @NonNull List<Rect> areas, int dx, int dy) {
+        if (areas.isEmpty()) {
+            return;
+        }
+        if (!bitmap.isMutable()) {
+            Log.e(TAG, "Can't mask an immutable screenshot");
+            return;
+        }
+
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        paint.setColor(MASK_COLOR);
+        for (Rect area : areas) {
+            canvas.drawRect(area.left + dx, area.top + dy, area.right + dx, area.bottom + dy, paint);
+        }
+    }
+
+    /**
+     * The sensitive areas of one window, relative to its root view.
+     */
+    @VisibleForTesting
+    static class MaskedWindow {
+        final View root;
+        final int left;
+        final int top;
+        final List<Rect> areas;
+
+        MaskedWindow(@NonNull View root, int left, int top, @NonNull List<Rect> areas) {
+            this.root = root;
+            this.left = left;
+            this.top = top;
+            this.areas = areas;
+        }
+    }
+}
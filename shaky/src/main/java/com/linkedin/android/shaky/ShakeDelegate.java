@@ -17,6 +17,7 @@ package com.linkedin.android.shaky;
 
 import android.app.Activity;
 import android.app.DialogFragment;
+import android.content.Context;
 
 import androidx.annotation.IntDef;
 import androidx.annotation.MenuRes;
@@ -26,6 +27,8 @@ import androidx.annotation.WorkerThread;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Entry point into this API.
@@ -45,6 +48,10 @@ public abstract class ShakeDelegate {
     public static final int SENSITIVITY_MEDIUM = 23;
     public static final int SENSITIVITY_HARD = 24;
 
+    public static final long NO_ATTACHMENT_BUDGET = -1;
+
+    public static final int DEFAULT_OUTBOX_JOB_ID = 0x5348414B;
+
     @SensitivityLevel
     private static int sensitivityLevel = SENSITIVITY_MEDIUM;
     /** Allows user to customize the send icon at the end. Needs to be the menu itself because you cannot
@@ -139,11 +146,23 @@ public abstract class ShakeDelegate {
      * Called from the background thread during the feedback collection flow. This method
      * can be used to collect extra debug information to include in the feedback
      * submission, such as user data, app version, etc.
+     * <p/>
+     * Note that the activity is live and must not be touched off the main thread. Prefer
+     * {@link #getDataCollectors()}, which runs in parallel and works on an {@link ActivitySnapshot}.
      */
     @WorkerThread
     public void collectData(@NonNull Activity activity, @NonNull Result data) {
     }
 
+    /**
+     * @return collectors to run in parallel during the feedback collection flow, alongside
+     * {@link #collectData(Activity, Result)}. Their results are merged in list order.
+     */
+    @NonNull
+    public List<DataCollector> getDataCollectors() {
+        return Collections.emptyList();
+    }
+
     /**
      * @return a custom dialog to be shown before the feedback flow
      */
@@ -217,12 +236,129 @@ public abstract class ShakeDelegate {
         return false;
     }
 
+    /**
+     * Controls whether password fields, views marked with {@link ScreenshotMasker#setSensitive} and
+     * {@link android.view.WindowManager.LayoutParams#FLAG_SECURE} windows are blacked out in
+     * screenshots when the screen is captured.
+     *
+     * @return true to mask sensitive views (default), false to capture the screen as it is
+     */
+    public boolean shouldMaskSensitiveViews() {
+        return true;
+    }
+
+    /**
+     * Controls whether {@link FeedbackActivity} opens as soon as the screen has been captured,
+     * instead of after a blocking progress dialog. When enabled, the screenshot is shown from memory
+     * while it is written to disk and {@link #collectData}/{@link #getDataCollectors()} run in the
+     * background; submitting waits for them if they are still running.
+     * <p/>
+     * This does not apply to the bottom sheet or custom shake handling flows, which need the
+     * collected data before they can continue.
+     *
+     * @return true to show the feedback UI immediately, false to wait for data collection (default)
+     */
+    public boolean shouldShowFeedbackImmediately() {
+        return false;
+    }
+
+    /**
+     * The maximum total size of the attachments passed to {@link #submit} or {@link #submitAsync}.
+     * When the attachments are larger, images are downscaled and re-encoded, text is compressed or
+     * truncated and, as a last resort, attachments are removed until they fit. The changes are listed
+     * in {@link Result#getAttachmentReport()}.
+     *
+     * @return the budget in bytes, or {@link #NO_ATTACHMENT_BUDGET} to send attachments as-is (default)
+     */
+    public long getAttachmentBudgetBytes() {
+        return NO_ATTACHMENT_BUDGET;
+    }
+
+    /**
+     * Controls whether all attachments are packed into a single ZIP, together with a
+     * {@code manifest.json} of the feedback fields, before {@link #submit} or {@link #submitAsync} is
+     * called. One file is cheaper to share than many, and avoids attachment count limits.
+     *
+     * @return true to send one ZIP, false to send the attachments separately (default)
+     */
+    public boolean shouldBundleAttachments() {
+        return false;
+    }
+
+    /**
+     * Controls whether the screenshots, collected data and outbox entries Shaky stores on disk are
+     * encrypted at rest, with AES-GCM and a key protected by the Android Keystore. Attachments are
+     * decrypted while they are read through their FileProvider Uris, which requires declaring
+     * {@link ShakyFileProvider} instead of the plain FileProvider; setting up Shaky fails otherwise.
+     * Read once, when Shaky is set up.
+     * Requires API 23.
+     *
+     * @return true to encrypt files at rest, false to store them in plain text (default)
+     */
+    public boolean shouldEncryptAtRest() {
+        return false;
+    }
+
+    /**
+     * Controls whether drawings on the screenshot are burned into it when the user saves them. If
+     * not, the markup is kept next to the screenshot, so it can still be undone when the user edits
+     * the screenshot again, and is sent as an extra SVG attachment that can be laid over the
+     * screenshot. Redactions (the thick and pixelate brushes) are always burned in. Read once, when
+     * Shaky is set up.
+     *
+     * @return true to flatten drawings into the screenshot (default), false to send them separately
+     */
+    public boolean shouldFlattenAnnotations() {
+        return true;
+    }
+
+    /**
+     * The JobScheduler job id {@link OutboxShakeDelegate} uses to send queued reports. Job ids are
+     * shared by the whole app, so override this if the default clashes with one of the app's own
+     * jobs. Read once, when Shaky is set up.
+     *
+     * @return the job id, {@link #DEFAULT_OUTBOX_JOB_ID} by default
+     */
+    public int getOutboxJobId() {
+        return DEFAULT_OUTBOX_JOB_ID;
+    }
+
     /**
      * Called when the user submits the Feedback form. Creates and starts an email Intent.
      * This method can be overridden to send data to a custom URL endpoint, etc.
+     * <p/>
+     * Called on the main thread. Not called if {@link #shouldSubmitAsync()} returns true.
      */
     public abstract void submit(@NonNull Activity activity, @NonNull Result result);
 
+    /**
+     * Controls whether feedback is submitted with {@link #submitAsync} on a background thread
+     * instead of {@link #submit(Activity, Result)} on the main thread. Enable this for delegates
+     * that zip, encrypt or upload the result, so they don't need to manage their own threading.
+     *
+     * @return true to submit with {@link #submitAsync}, false to use {@link #submit} (default)
+     */
+    public boolean shouldSubmitAsync() {
+        return false;
+    }
+
+    /**
+     * Called on a Shaky background thread when the user submits the Feedback form and
+     * {@link #shouldSubmitAsync()} returns true. Implementations may block, or hand the work off and
+     * return early; either way they must eventually call {@link SubmitCallback#onSuccess()} or
+     * {@link SubmitCallback#onFailure(Throwable)}. The flow is only reported as
+     * {@link ShakyFlowCallback#SHAKY_FINISHED_SUBMITTED} once the submission has succeeded.
+     *
+     * @param context  the application context
+     * @param result   the feedback, with attachments already mapped to FileProvider Uris
+     * @param callback to report progress and the outcome to
+     */
+    @WorkerThread
+    public void submitAsync(@NonNull Context context, @NonNull Result result, @NonNull SubmitCallback callback) {
+        callback.onFailure(new UnsupportedOperationException(
+                "shouldSubmitAsync() returned true, but submitAsync() is not implemented"));
+    }
+
     /**
      * Called when the user completes edit screenshot action. Provides edited screenshot Uri
      * in result.
@@ -26,13 +26,18 @@ import android.graphics.Bitmap;
 import android.hardware.SensorManager;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -41,16 +46,18 @@ import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.jraska.falcon.Falcon;
 import com.squareup.seismic.ShakeDetector;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Listens for a shake and then starts the feedback submission flow.
  * <p/>
- * Note: this class supports attaching and detaching activities for configuration changes, but if
- * the {@link CollectDataTask} completes while there is no activity attached, the feedback
- * flow will be terminated.
+ * Note: this class supports attaching and detaching activities for configuration changes. If
+ * the {@link CollectDataTask} completes while there is no activity attached, its result is held
+ * until the next activity is resumed, and the feedback flow continues from there.
  */
 public class Shaky implements ShakeDetector.Listener {
 
@@ -62,6 +69,7 @@ public class Shaky implements ShakeDetector.Listener {
     private static final long SHAKE_COOLDOWN_MS = TimeUnit.SECONDS.toMillis(5);
     private final ShakeDelegate delegate;
     private final ShakeDetector shakeDetector;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     @Nullable
     private final ShakyFlowCallback shakyFlowCallback;
 
@@ -74,6 +82,11 @@ public class Shaky implements ShakeDetector.Listener {
     private Context appContext;
     private long lastShakeTime;
     private CollectDataTask collectDataTask;
+    @Nullable
+    private Result pendingResult;
+    @Nullable
+    private Result pendingSubmission;
+    private boolean showFeedbackImmediately;
     private String actionThatStartedTheActivity;
     private FlowType flowType = FlowType.FEEDBACK_FLOW;
 
@@ -84,16 +97,54 @@ public class Shaky implements ShakeDetector.Listener {
         shakeDetector = new ShakeDetector(this);
 
         shakeDetector.setSensitivity(getDetectorSensitivityLevel());
+        if (delegate.shouldEncryptAtRest()) {
+            checkProviderDecrypts(appContext);
+        }
+        AtRestEncryption.setEnabled(appContext, delegate.shouldEncryptAtRest());
+        AnnotationLayer.setFlattened(delegate.shouldFlattenAnnotations());
+        Outbox.setJobId(delegate.getOutboxJobId());
 
         IntentFilter filter = new IntentFilter();
         filter.addAction(ActionConstants.ACTION_START_FEEDBACK_FLOW);
         filter.addAction(ActionConstants.ACTION_START_BUG_REPORT);
         filter.addAction(ActionConstants.ACTION_START_GENERAL_FEEDBACK);
         filter.addAction(ActionConstants.ACTION_DIALOG_DISMISSED_BY_USER);
+        filter.addAction(CollectDataDialog.ACTION_COLLECTION_CANCELLED_BY_USER);
         filter.addAction(FeedbackActivity.ACTION_END_FEEDBACK_FLOW);
         filter.addAction(FeedbackActivity.ACTION_ACTIVITY_CLOSED_BY_USER);
         filter.addAction(ShakySettingDialog.UPDATE_SHAKY_SENSITIVITY);
         LocalBroadcastManager.getInstance(appContext).registerReceiver(createReceiver(), filter);
+
+        // pick up reports that were still waiting in the outbox, and the draft that was being
+        // written, when the process died
+        ShakyExecutor.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                DraftStore.preload(appContext);
+                Outbox.resume(appContext);
+            }
+        });
+    }
+
+    /**
+     * Fails fast if attachments would be shared through a provider that doesn't decrypt them, which
+     * would hand the receiving app the encrypted bytes.
+     */
+    private static void checkProviderDecrypts(@NonNull Context context) {
+        String providerName = Utils.getProviderClassName(context);
+        if (providerName == null) {
+            return;
+        }
+        try {
+            Class<?> providerClass = Class.forName(providerName, false, context.getClassLoader());
+            if (ShakyFileProvider.class.isAssignableFrom(providerClass)) {
+                return;
+            }
+        } catch (ClassNotFoundException e) {
+            Log.e(TAG, "Could not load " + providerName, e);
+        }
+        throw new IllegalStateException("Encryption at rest requires declaring " + ShakyFileProvider.class.getName()
+                + " instead of " + providerName + ", or attachments are shared encrypted");
     }
 
     /**
@@ -182,20 +233,65 @@ public class Shaky implements ShakeDetector.Listener {
             // we're attaching to a new Activity instance
             // make sure the UI is in sync with the AsyncTask state
             dismissCollectFeedbackDialogIfNecessary();
+            deliverPendingResultIfNecessary();
+            deliverPendingSubmissionIfNecessary();
         } else {
             stop();
         }
     }
 
     private void doStartFeedbackFlow() {
-        new CollectDataDialog().show(activity.getFragmentManager(), COLLECT_DATA_TAG);
+        showFeedbackImmediately = delegate.shouldShowFeedbackImmediately()
+                && !delegate.isCustomHandlingOfShakeEnabled()
+                && !isBottomSheetFlowActive;
+        if (!showFeedbackImmediately) {
+            new CollectDataDialog().show(activity.getFragmentManager(), COLLECT_DATA_TAG);
+        }
         if (shakyFlowCallback != null) {
             shakyFlowCallback.onCollectingData();
         }
-        collectDataTask = new CollectDataTask(activity, delegate, createCallback());
+        collectDataTask = new CollectDataTask(activity, ActivitySnapshot.capture(activity), delegate, createCallback());
         getScreenshotBitmap();
     }
 
+    /**
+     * Starts the {@link CollectDataTask} with the captured screenshots, unless the user cancelled
+     * the flow while the screen was being captured.
+     * <p/>
+     * If the feedback UI should be shown immediately, opens it right away with the in-memory
+     * screenshot, and leaves the task running in the background as a {@link PendingFeedback}.
+     */
+    private void executeCollectDataTask(@Nullable Bitmap... bitmaps) {
+        if (collectDataTask == null) {
+            Log.d(TAG, "Collection was cancelled during capture, dropping screenshot(s)");
+            return;
+        }
+
+        if (!showFeedbackImmediately || activity == null) {
+            // no activity to show the UI in, wait for the result like the regular flow does
+            showFeedbackImmediately = false;
+            collectDataTask.execute(bitmaps);
+            return;
+        }
+
+        Bitmap screenshot = bitmaps != null && bitmaps.length > 0 ? bitmaps[0] : null;
+        Uri screenshotUri = screenshot != null ? collectDataTask.reserveScreenshotUri() : null;
+        PendingFeedback.setCurrent(new PendingFeedback(screenshotUri, screenshot, collectDataTask));
+        collectDataTask.execute(bitmaps);
+        startFeedbackActivity(screenshotUri, null);
+    }
+
+    /**
+     * Stops an in-flight {@link CollectDataTask}, if any.
+     */
+    private void cancelCollectData() {
+        if (collectDataTask != null) {
+            collectDataTask.cancelCollection();
+            collectDataTask = null;
+        }
+        isBottomSheetFlowActive = false;
+    }
+
     /**
      * Start listening for shakes. Should be called when the {@link Activity} is resumed.
      */
@@ -382,12 +478,19 @@ public class Shaky implements ShakeDetector.Listener {
      *    - Falls back to {@link Utils#capture} if PixelCopy fails.
      * 3. If multi-window capture is disabled (default):
      *    - {@link Utils#capture} fallback - Main activity only.
+     * <p/>
+     * Unless {@link ShakeDelegate#shouldMaskSensitiveViews()} is disabled, sensitive views are found
+     * before capturing and blacked out in the bitmaps before they are handed on.
      */
     private void getScreenshotBitmap() {
+        final ScreenshotMasker masker = delegate.shouldMaskSensitiveViews()
+                ? ScreenshotMasker.find(activity)
+                : ScreenshotMasker.NONE;
         try {
             Bitmap bitmap = Falcon.takeScreenshotBitmap(activity);
             if (bitmap != null) {
-                collectDataTask.execute(bitmap);
+                masker.maskScreen(bitmap);
+                executeCollectDataTask(bitmap);
                 return;
             }
         } catch (Exception exception) {
@@ -397,22 +500,22 @@ public class Shaky implements ShakeDetector.Listener {
         // Falcon failed - check if multi-window capture is enabled
         if (delegate.enableMultiWindowCapture()) {
             // Use PixelCopy to capture all windows separately
-            MultiWindowScreenshotCapture.captureMultipleAsync(activity, (List<Bitmap> bitmaps) -> {
+            MultiWindowScreenshotCapture.captureMultipleAsync(activity, masker, (List<Bitmap> bitmaps) -> {
                 if (bitmaps != null && !bitmaps.isEmpty()) {
                     Log.i(TAG, "PixelCopy captured " + bitmaps.size() + " screenshot(s)");
                     // Convert List to array for CollectDataTask
                     Bitmap[] bitmapArray = bitmaps.toArray(new Bitmap[0]);
                     // Pass the captured bitmaps as params to CollectDataTask
-                    collectDataTask.execute(bitmapArray);
+                    executeCollectDataTask(bitmapArray);
                 } else {
                     // PixelCopy failed - try final fallback
                     Log.e(TAG, "PixelCopy failed, falling back to Canvas");
-                    captureWithCanvas();
+                    captureWithCanvas(masker);
                 }
             });
         } else {
             // Multi-window capture disabled - use single-screenshot fallback
-            captureWithCanvas();
+            captureWithCanvas(masker);
         }
     }
 
@@ -420,14 +523,17 @@ public class Shaky implements ShakeDetector.Listener {
      * Final fallback when all other screenshot methods fail.
      * Attempts to capture at least the main window via {@link Utils#capture}.
      */
-    private void captureWithCanvas() {
-        View view = activity.getWindow().getDecorView().getRootView();
-        Bitmap bitmap = Utils.capture(view, activity.getWindow());
-        if (bitmap == null) {
-            Log.e(TAG, "Screenshot capture failed");
-        }
-        // Execute task regardless - user can still submit feedback without screenshot
-        collectDataTask.execute(bitmap);
+    private void captureWithCanvas(@NonNull final ScreenshotMasker masker) {
+        final View view = activity.getWindow().getDecorView().getRootView();
+        Utils.capture(view, activity.getWindow(), bitmap -> {
+            if (bitmap == null) {
+                Log.e(TAG, "Screenshot capture failed");
+            } else {
+                masker.maskWindow(bitmap, view);
+            }
+            // Execute task regardless - user can still submit feedback without screenshot
+            executeCollectDataTask(bitmap);
+        });
     }
 
     private void dismissCollectFeedbackDialogIfNecessary() {
@@ -443,6 +549,45 @@ public class Shaky implements ShakeDetector.Listener {
         }
     }
 
+    private void updateCollectFeedbackDialog(@CollectDataTask.Stage int stage, int current, int total) {
+        if (activity == null) {
+            return;
+        }
+
+        CollectDataDialog dialog = (CollectDataDialog) activity.getFragmentManager()
+                                                               .findFragmentByTag(COLLECT_DATA_TAG);
+
+        if (dialog != null) {
+            dialog.setProgress(stage, current, total);
+        }
+    }
+
+    /**
+     * Continues the feedback flow with a result that finished while no activity was attached.
+     */
+    private void deliverPendingResultIfNecessary() {
+        if (pendingResult == null || activity == null) {
+            return;
+        }
+
+        Result result = pendingResult;
+        pendingResult = null;
+        onResultReady(result);
+    }
+
+    /**
+     * Hands the delegate a submission that was prepared while no activity was attached.
+     */
+    private void deliverPendingSubmissionIfNecessary() {
+        if (pendingSubmission == null || activity == null) {
+            return;
+        }
+
+        Result result = pendingSubmission;
+        pendingSubmission = null;
+        submitToDelegate(activity, result);
+    }
+
     /**
      * Receiver for start and end of feedback flow. When the user accepts the
      * dialog, starts the collect data background task.
@@ -464,18 +609,18 @@ public class Shaky implements ShakeDetector.Listener {
                         }
                         doStartFeedbackFlow();
                     }
+                } else if (CollectDataDialog.ACTION_COLLECTION_CANCELLED_BY_USER.equals(intent.getAction())) {
+                    cancelCollectData();
+                    if (shakyFlowCallback != null) {
+                        shakyFlowCallback.onShakyFinished(ShakyFlowCallback.SHAKY_FINISHED_BY_USER);
+                    }
                 } else if (ActionConstants.ACTION_DIALOG_DISMISSED_BY_USER.equals(intent.getAction())
                         || FeedbackActivity.ACTION_ACTIVITY_CLOSED_BY_USER.equals(intent.getAction())) {
                     if (shakyFlowCallback != null) {
                         shakyFlowCallback.onShakyFinished(ShakyFlowCallback.SHAKY_FINISHED_BY_USER);
                     }
                 } else if (FeedbackActivity.ACTION_END_FEEDBACK_FLOW.equals(intent.getAction())) {
-                    if (activity != null) {
-                        delegate.submit(activity, unpackResult(intent));
-                    }
-                    if (shakyFlowCallback != null) {
-                        shakyFlowCallback.onShakyFinished(ShakyFlowCallback.SHAKY_FINISHED_SUBMITTED);
-                    }
+                    submitFeedbackInBackground(PendingFeedback.takeCurrent(), intent);
                 } else if (ShakySettingDialog.UPDATE_SHAKY_SENSITIVITY.equals(intent.getAction())) {
                     setSensitivity(intent.getIntExtra(ShakySettingDialog.SHAKY_NEW_SENSITIVITY, ShakeDelegate.SENSITIVITY_MEDIUM));
                     if (shakyFlowCallback != null) {
@@ -501,59 +646,76 @@ public class Shaky implements ShakeDetector.Listener {
     @NonNull
     private CollectDataTask.Callback createCallback() {
         return new CollectDataTask.Callback() {
+            @Override
+            public void onProgress(@CollectDataTask.Stage int stage, int current, int total) {
+                updateCollectFeedbackDialog(stage, current, total);
+            }
+
             @Override
             public void onDataReady(@Nullable Result result) {
-                boolean shouldStartFeedbackActivity = activity != null && collectDataTask != null;
                 collectDataTask = null;
-                dismissCollectFeedbackDialogIfNecessary();
-                Result safeResult = result != null ? result : new Result();
-
-                // Handle custom shake flow
-                if (delegate.isCustomHandlingOfShakeEnabled()) {
-                    if (activity != null) {
-                        delegate.performCustomActionOnShake(activity, safeResult);
-                    }
-
-                    if (shakyFlowCallback != null) {
-                        shakyFlowCallback.onShakyStarted(ShakyFlowCallback.SHAKY_STARTED_BY_SHAKE);
-                    }
+                if (showFeedbackImmediately) {
+                    // the UI is already showing, the result is picked up through PendingFeedback
+                    showFeedbackImmediately = false;
                     return;
                 }
 
-                if (shouldStartFeedbackActivity && !isBottomSheetFlowActive) {
-                    startFeedbackActivity(safeResult);
-                    return;
-                } else {
-                    if (activity != null) {
-                       safeResult.setTitle(feedbackTitle);
+                Result safeResult = result != null ? result : new Result();
 
-                        // add file provider data to all attachments
-                        ArrayList<Uri> secureAttachments = new ArrayList<>();
-                        for (Uri attachment : safeResult.getAttachments()) {
-                            secureAttachments.add(Utils.getProviderUri(appContext, attachment));
-                        }
-                        safeResult.setAttachments(secureAttachments);
-                        delegate.submit(activity, safeResult);
-                        // reset the value to avoid any inconsistent behaviour
-                        isBottomSheetFlowActive = false;
-                        return;
-                    }
+                if (activity == null) {
+                    // don't throw away the collected data, pick the flow back up on the next resume
+                    pendingResult = safeResult;
+                    return;
                 }
 
-                if (shakyFlowCallback != null) {
-                    shakyFlowCallback.onShakyFinished(ShakyFlowCallback.SHAKY_FINISHED_NO_RESUMED_ACTIVITY);
-                }
+                dismissCollectFeedbackDialogIfNecessary();
+                onResultReady(safeResult);
             }
         };
     }
 
+    /**
+     * Continues the feedback flow once data collection has finished and an activity is attached.
+     */
+    private void onResultReady(@NonNull Result result) {
+        // Handle custom shake flow
+        if (delegate.isCustomHandlingOfShakeEnabled()) {
+            delegate.performCustomActionOnShake(activity, result);
+
+            if (shakyFlowCallback != null) {
+                shakyFlowCallback.onShakyStarted(ShakyFlowCallback.SHAKY_STARTED_BY_SHAKE);
+            }
+            return;
+        }
+
+        if (!isBottomSheetFlowActive) {
+            startFeedbackActivity(result);
+            return;
+        }
+
+        result.setTitle(feedbackTitle);
+        final Result collected = result;
+        ShakyExecutor.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                submitFeedback(collected);
+            }
+        });
+        // reset the value to avoid any inconsistent behaviour
+        isBottomSheetFlowActive = false;
+    }
+
     /**
      * Launches the main feedback activity with the bundle extra data.
      */
     private void startFeedbackActivity(@NonNull Result result) {
+        startFeedbackActivity(result.getScreenshotUri(), result.getData());
+    }
+
+    private void startFeedbackActivity(@Nullable Uri screenshotUri, @Nullable Bundle userData) {
         Intent intent = FeedbackActivity.newIntent(activity,
-                result.getScreenshotUri(),
-                result.getData(),
+                screenshotUri,
+                userData != null ? ResultRegistry.register(appContext, userData) : null,
                 delegate.resMenu,
                 actionThatStartedTheActivity,
                 delegate.getTheme() != null ? delegate.getTheme() : FeedbackActivity.MISSING_RESOURCE,
@@ -565,20 +727,160 @@ public class Shaky implements ShakeDetector.Listener {
         }
     }
 
-    private Result unpackResult(Intent intent) {
-        Result result = new Result(intent.getBundleExtra(FeedbackActivity.USER_DATA));
-        result.setScreenshotUri((Uri) intent.getParcelableExtra(FeedbackActivity.SCREENSHOT_URI));
-        result.setTitle(intent.getStringExtra(FeedbackActivity.TITLE));
-        result.setMessage(intent.getStringExtra(FeedbackActivity.MESSAGE));
-        result.setSubcategory(intent.getStringExtra(FeedbackActivity.SUBCATEGORY));
+    /**
+     * Submits the feedback from {@link FeedbackActivity} on a background thread. Waits for data
+     * collection to finish first if it is still running, or reads the collected data back from disk
+     * after process death.
+     */
+    private void submitFeedbackInBackground(@Nullable final PendingFeedback pendingFeedback,
+                                            @NonNull final Intent intent) {
+        final String resultToken = intent.getStringExtra(FeedbackActivity.RESULT_TOKEN);
+        ShakyExecutor.get().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bundle userData;
+                final boolean isScreenshotWritten;
+                if (pendingFeedback != null) {
+                    Result collected = pendingFeedback.await();
+                    userData = collected != null ? collected.getData() : null;
+                    // the screenshot file was reserved up front, but is only written if collection finished
+                    isScreenshotWritten = collected != null && collected.getScreenshotUri() != null;
+                } else {
+                    userData = ResultRegistry.load(appContext, resultToken);
+                    ResultRegistry.release(appContext, resultToken);
+                    isScreenshotWritten = true;
+                }
+                submitFeedback(unpackResult(intent, userData, isScreenshotWritten));
+            }
+        });
+    }
 
-        // add file provider data to all attachments
-        ArrayList<Uri> fileProviderAttachments = new ArrayList<>();
+    /**
+     * Prepares the result for sharing, shrinking and bundling the attachments as the delegate asks,
+     * and hands it to the delegate, either directly on this thread if it submits asynchronously, or on
+     * the main thread otherwise.
+     */
+    @WorkerThread
+    private void submitFeedback(@NonNull final Result result) {
+        AnnotationLayer.addAttachment(result);
+        AttachmentBudget.apply(appContext, result, delegate.getAttachmentBudgetBytes());
+        if (delegate.shouldBundleAttachments()) {
+            AttachmentBundle.apply(appContext, result);
+        }
+
+        // add file provider data to all attachments, encrypted ones are decrypted as they are read
+        ArrayList<Uri> secureAttachments = new ArrayList<>();
         for (Uri attachment : result.getAttachments()) {
-            fileProviderAttachments.add(Utils.getProviderUri(appContext, attachment));
+            secureAttachments.add(Utils.getProviderUri(appContext, attachment));
+        }
+        result.setAttachments(secureAttachments);
+
+        if (delegate.shouldSubmitAsync()) {
+            SubmitCallback callback = createSubmitCallback();
+            try {
+                delegate.submitAsync(appContext, result, callback);
+            } catch (RuntimeException e) {
+                // the flow still has to end, whatever the delegate does
+                callback.onFailure(e);
+            }
+            return;
+        }
+
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (activity == null) {
+                    // don't throw away the finished report, submit it on the next resume
+                    pendingSubmission = result;
+                    return;
+                }
+                submitToDelegate(activity, result);
+            }
+        });
+    }
+
+    @MainThread
+    private void submitToDelegate(@NonNull Activity activity, @NonNull Result result) {
+        delegate.submit(activity, result);
+        if (shakyFlowCallback != null) {
+            shakyFlowCallback.onShakyFinished(ShakyFlowCallback.SHAKY_FINISHED_SUBMITTED);
+        }
+    }
+
+    /**
+     * Callback for {@link ShakeDelegate#submitAsync}, which forwards to the
+     * {@link ShakyFlowCallback} on the main thread.
+     */
+    @NonNull
+    private SubmitCallback createSubmitCallback() {
+        final AtomicBoolean isFinished = new AtomicBoolean();
+        return new SubmitCallback() {
+            @Override
+            public void onProgress(final long completed, final long total) {
+                if (shakyFlowCallback == null || isFinished.get()) {
+                    return;
+                }
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        shakyFlowCallback.onSubmitProgress(completed, total);
+                    }
+                });
+            }
+
+            @Override
+            public void onSuccess() {
+                finish(ShakyFlowCallback.SHAKY_FINISHED_SUBMITTED);
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable error) {
+                Log.e(TAG, "Failed to submit feedback", error);
+                finish(ShakyFlowCallback.SHAKY_FINISHED_SUBMIT_FAILED);
+            }
+
+            private void finish(@ShakyFlowCallback.ShakyFinishedReason final int reason) {
+                if (!isFinished.compareAndSet(false, true)) {
+                    return;
+                }
+                finishFeedbackFlow(reason);
+            }
+        };
+    }
+
+    /**
+     * Reports the end of the flow to the {@link ShakyFlowCallback} on the main thread.
+     */
+    @AnyThread
+    private void finishFeedbackFlow(@ShakyFlowCallback.ShakyFinishedReason final int reason) {
+        if (shakyFlowCallback == null) {
+            return;
         }
-        result.setAttachments(fileProviderAttachments);
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                shakyFlowCallback.onShakyFinished(reason);
+            }
+        });
+    }
 
+    /**
+     * @param userData            the collected data, or null if there is none (e.g. it could not be
+     *                            recovered)
+     * @param isScreenshotWritten false if writing the screenshot failed or was cancelled, in which
+     *                            case the result gets no screenshot
+     */
+    @WorkerThread
+    private Result unpackResult(@NonNull Intent intent, @Nullable Bundle userData, boolean isScreenshotWritten) {
+        Result result = new Result(userData != null ? userData : new Bundle());
+        Uri screenshotUri = intent.getParcelableExtra(FeedbackActivity.SCREENSHOT_URI);
+        File screenshotFile = AnnotationLayer.getScreenshotFile(screenshotUri);
+        if (isScreenshotWritten && (screenshotFile == null || screenshotFile.isFile())) {
+            result.setScreenshotUri(screenshotUri);
+        }
+        result.setTitle(intent.getStringExtra(FeedbackActivity.TITLE));
+        result.setMessage(intent.getStringExtra(FeedbackActivity.MESSAGE));
+        result.setSubcategory(intent.getStringExtra(FeedbackActivity.SUBCATEGORY));
         return result;
     }
 
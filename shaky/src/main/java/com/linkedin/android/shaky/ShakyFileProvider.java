@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.FileProvider;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * {@link FileProvider} that decrypts files written with {@link AtRestEncryption} while they are
+ * read, so attachments can be shared with other apps without writing plain copies of them.
+ * Declare it in place of {@link FileProvider} when {@link ShakeDelegate#shouldEncryptAtRest()} is
+ * enabled.
+ * <p/>
+ * Encrypted files are served through a pipe, which a background thread fills as the other app
+ * reads, and their size is reported as the size of the decrypted content.
+ */
+public class ShakyFileProvider extends FileProvider {
+    private static final String TAG = ShakyFileProvider.class.getSimpleName();
+    private static final String MODE_READ = "r";
+    private static final int BUFFER_SIZE = 8192;
+
+    @Override
+    public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode) throws FileNotFoundException {
+        ParcelFileDescriptor file = super.openFile(uri, mode);
+        try {
+            if (!MODE_READ.equals(mode) || !isEncrypted(file)) {
+                return file;
+            }
+
+            final ParcelFileDescriptor encrypted = file;
+            final ParcelFileDescriptor[] pipe = ParcelFileDescriptor.createReliablePipe();
+            ShakyExecutor.get().execute(new Runnable() {
+                @Override
+                public void run() {
+                    decrypt(encrypted, pipe[1]);
+                }
+            });
+            return pipe[0];
+        } catch (IOException e) {
+            Utils.closeQuietly(file);
+            throw new FileNotFoundException("Could not open " + uri + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Cursor query(@NonNull Uri uri,
+                        @Nullable String[] projection,
+                        @Nullable String selection,
+                        @Nullable String[] selectionArgs,
+                        @Nullable String sortOrder) {
+        Cursor cursor = super.query(uri, projection, selection, selectionArgs, sortOrder);
+        int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+        if (sizeIndex < 0 || !cursor.moveToFirst()) {
+            return cursor;
+        }
+
+        long size;
+        InputStream inputStream = null;
+        try {
+            ParcelFileDescriptor file = super.openFile(uri, MODE_READ);
+            long fileLength = file.getStatSize();
+            inputStream = new ParcelFileDescriptor.AutoCloseInputStream(file);
+            size = AtRestEncryption.getContentLength(inputStream, fileLength);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read the size of " + uri, e);
+            cursor.moveToPosition(-1);
+            return cursor;
+        } finally {
+            Utils.closeQuietly(inputStream);
+        }
+
+        String[] columns = cursor.getColumnNames();
+        Object[] row = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            if (i == sizeIndex) {
+                row[i] = size;
+            } else if (cursor.getType(i) == Cursor.FIELD_TYPE_INTEGER) {
+                row[i] = cursor.getLong(i);
+            } else if (cursor.getType(i) != Cursor.FIELD_TYPE_NULL) {
+                row[i] = cursor.getString(i);
+            }
+        }
+        cursor.close();
+
+        MatrixCursor sizedCursor = new MatrixCursor(columns, 1);
+        sizedCursor.addRow(row);
+        return sizedCursor;
+    }
+
+    /**
+     * Looks at the header of the file, and leaves it positioned at its start again.
+     */
+    private static boolean isEncrypted(@NonNull ParcelFileDescriptor file) throws IOException {
+        // not closed, since that would close the descriptor too
+        FileInputStream inputStream = new FileInputStream(file.getFileDescriptor());
+        boolean isEncrypted = AtRestEncryption.isEncrypted(inputStream);
+        inputStream.getChannel().position(0);
+        return isEncrypted;
+    }
+
+    private static void decrypt(@NonNull ParcelFileDescriptor file, @NonNull ParcelFileDescriptor sink) {
+        InputStream inputStream = null;
+        OutputStream outputStream = null;
+        try {
+            inputStream = AtRestEncryption.unwrap(new ParcelFileDescriptor.AutoCloseInputStream(file));
+            outputStream = new ParcelFileDescriptor.AutoCloseOutputStream(sink);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            outputStream.close();
+            outputStream = null;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not decrypt shared file", e);
+            try {
+                // lets the reader tell a failure apart from the end of the file
+                sink.closeWithError(e.getMessage());
+            } catch (IOException closeError) {
+                Log.e(TAG, closeError.getMessage(), closeError);
+            }
+            outputStream = null;
+        } finally {
+            Utils.closeQuietly(inputStream);
+            Utils.closeQuietly(file);
+            Utils.closeQuietly(outputStream);
+        }
+    }
+}
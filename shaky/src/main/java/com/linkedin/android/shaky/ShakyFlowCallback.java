@@ -47,7 +47,8 @@ public interface ShakyFlowCallback {
             SHAKY_FINISHED_ALREADY_STARTED,
             SHAKY_FINISHED_BY_USER,
             SHAKY_FINISHED_SENSITIVITY_UPDATED,
-            SHAKY_FINISHED_SUBMITTED
+            SHAKY_FINISHED_SUBMITTED,
+            SHAKY_FINISHED_SUBMIT_FAILED
     })
     @Retention(RetentionPolicy.SOURCE)
     @interface ShakyFinishedReason {
@@ -66,7 +67,7 @@ public interface ShakyFlowCallback {
      */
     int SHAKY_FINISHED_ALREADY_STARTED = 3;
     /**
-     * The flow is finished, because the user dismissed the dialog.
+     * The flow is finished, because the user dismissed the dialog or cancelled data collection.
      */
     int SHAKY_FINISHED_BY_USER = 4;
     /**
@@ -75,8 +76,13 @@ public interface ShakyFlowCallback {
     int SHAKY_FINISHED_SENSITIVITY_UPDATED = 5;
     /**
      * The flow is finished, and user has submitted the feedback through {@link ShakeDelegate#submit(Activity, Result)}.
+     * For delegates that submit asynchronously, this is only reported once the submission has completed.
      */
     int SHAKY_FINISHED_SUBMITTED = 6;
+    /**
+     * The flow is finished, because {@link ShakeDelegate#submitAsync} reported a failure.
+     */
+    int SHAKY_FINISHED_SUBMIT_FAILED = 7;
 
     /**
      * Called when the flow is started.
@@ -102,4 +108,12 @@ public interface ShakyFlowCallback {
      * Called when {@link FeedbackActivity} is launched and the user is configuring the feedback.
      */
     void onConfiguringFeedback();
+
+    /**
+     * Called on the main thread when {@link ShakeDelegate#submitAsync} reports progress.
+     *
+     * @see SubmitCallback#onProgress(long, long)
+     */
+    default void onSubmitProgress(long completed, long total) {
+    }
 }
@@ -0,0 +1,416 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * The points drawn on {@link Paper}, kept in growable primitive arrays so that adding a touch
+ * point doesn't allocate.
+ * <p/>
+ * {@link #encode()} writes the points stroke by stroke, quantized to a quarter pixel. The first
+ * point of a stroke is stored as is and the following points as the difference from the previous
+ * point, as zigzag varints, so most points take two or three bytes.
+ */
+final class StrokeBuffer {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final float QUANTUM = 4f;
+
+    private static final byte FLAG_THIN = 1;
+    private static final byte FLAG_MOVE = 2;
+    private static final byte FLAG_PIXELATE = 4;
+    private static final byte BRUSH_MASK = FLAG_THIN | FLAG_PIXELATE;
+
+    /** The white brush, for whiting out. */
+    static final int BRUSH_THICK = 0;
+    /** The red brush, for marking up. */
+    static final int BRUSH_THIN = FLAG_THIN;
+    /** Pixelates the image under it, for redacting. */
+    static final int BRUSH_PIXELATE = FLAG_PIXELATE;
+
+    private float[] xs = new float[INITIAL_CAPACITY];
+    private float[] ys = new float[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    // scratch space for simplifying, kept to avoid allocating for every stroke
+    private boolean[] keep = new boolean[0];
+    private int[] ranges = new int[0];
+
+    /**
+     * @param isThin whether the point was drawn with the thin brush, rather than the thick one
+     * @param isMove whether the point starts a new stroke
+     */
+    void add(boolean isThin, boolean isMove, float x, float y) {
+        add(isThin ? BRUSH_THIN : BRUSH_THICK, isMove, x, y);
+    }
+
+    /**
+     * @param brush one of {@link #BRUSH_THICK}, {@link #BRUSH_THIN} or {@link #BRUSH_PIXELATE}
+     * @param isMove whether the point starts a new stroke
+     */
+    void add(int brush, boolean isMove, float x, float y) {
+        ensureCapacity(size + 1);
+        xs[size] = x;
+        ys[size] = y;
+        flags[size] = (byte) ((brush & BRUSH_MASK) | (isMove ? FLAG_MOVE : 0));
+        size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            capacity = Math.max(capacity, xs.length * 2);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+        }
+    }
+
+    /**
+     * Removes the points back to, and including, the start of the last stroke.
+     */
+    void removeLastStroke() {
+        while (size > 0) {
+            size--;
+            if ((flags[size] & FLAG_MOVE) != 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Drops the points of the last stroke that are within the tolerance of the line through their
+     * neighbours, using the Ramer-Douglas-Peucker algorithm. The first and last points are always
+     * kept.
+     *
+     * @param tolerance the largest distance, in pixels, a dropped point may be from the result
+     */
+    void simplifyLastStroke(float tolerance) {
+        int start = getLastStrokeStart();
+        int count = size - start;
+        if (count < 3) {
+            return;
+        }
+
+        if (keep.length < count) {
+            keep = new boolean[count];
+            ranges = new int[count * 2];
+        }
+        Arrays.fill(keep, 0, count, false);
+        keep[0] = true;
+        keep[count - 1] = true;
+
+        // iterative rather than recursive, long strokes would overflow the stack
+        float toleranceSquared = tolerance * tolerance;
+        int rangeCount = 0;
+        ranges[rangeCount++] = 0;
+        ranges[rangeCount++] = count - 1;
+        while (rangeCount > 0) {
+            int last = ranges[--rangeCount];
+            int first = ranges[--rangeCount];
+            int farthest = -1;
+            float farthestDistance = toleranceSquared;
+            for (int i = first + 1; i < last; i++) {
+                float distance = distanceToSegmentSquared(start + i, start + first, start + last);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest != -1) {
+                keep[farthest] = true;
+                ranges[rangeCount++] = first;
+                ranges[rangeCount++] = farthest;
+                ranges[rangeCount++] = farthest;
+                ranges[rangeCount++] = last;
+            }
+        }
+
+        int kept = start;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                xs[kept] = xs[start + i];
+                ys[kept] = ys[start + i];
+                flags[kept] = flags[start + i];
+                kept++;
+            }
+        }
+        size = kept;
+    }
+
+    private float distanceToSegmentSquared(int point, int first, int last) {
+        float dx = xs[last] - xs[first];
+        float dy = ys[last] - ys[first];
+        float px = xs[point] - xs[first];
+        float py = ys[point] - ys[first];
+        float lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared > 0) {
+            float t = Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+            px -= t * dx;
+            py -= t * dy;
+        }
+        return px * px + py * py;
+    }
+
+    /**
+     * @return the index of the move that starts the last stroke, or 0 if there is none
+     */
+    int getLastStrokeStart() {
+        return getStrokeStart(Math.max(size - 1, 0));
+    }
+
+    /**
+     * @return the index of the move that starts the stroke the point belongs to
+     */
+    int getStrokeStart(int index) {
+        int start = index;
+        while (start > 0 && (flags[start] & FLAG_MOVE) == 0) {
+            start--;
+        }
+        return start;
+    }
+
+    /**
+     * @return the index just past the last point of the stroke that starts at the index
+     */
+    int getStrokeEnd(int start) {
+        int end = start + 1;
+        while (end < size && (flags[end] & FLAG_MOVE) == 0) {
+            end++;
+        }
+        return Math.min(end, size);
+    }
+
+    /**
+     * Removes the stroke that starts at the index, moving the later strokes down.
+     *
+     * @return the points of the removed stroke, to put back with {@link #insertStroke}
+     */
+    @NonNull
+    StrokeBuffer removeStroke(int start) {
+        int end = getStrokeEnd(start);
+        StrokeBuffer removed = new StrokeBuffer();
+        removed.ensureCapacity(end - start);
+        System.arraycopy(xs, start, removed.xs, 0, end - start);
+        System.arraycopy(ys, start, removed.ys, 0, end - start);
+        System.arraycopy(flags, start, removed.flags, 0, end - start);
+        removed.size = end - start;
+
+        System.arraycopy(xs, end, xs, start, size - end);
+        System.arraycopy(ys, end, ys, start, size - end);
+        System.arraycopy(flags, end, flags, start, size - end);
+        size -= end - start;
+        return removed;
+    }
+
+    /**
+     * Puts the strokes back at the index, moving the later strokes up. The index must be the start
+     * of a stroke, or the end of the buffer.
+     */
+    void insertStroke(int start, @NonNull StrokeBuffer stroke) {
+        ensureCapacity(size + stroke.size);
+        System.arraycopy(xs, start, xs, start + stroke.size, size - start);
+        System.arraycopy(ys, start, ys, start + stroke.size, size - start);
+        System.arraycopy(flags, start, flags, start + stroke.size, size - start);
+
+        System.arraycopy(stroke.xs, 0, xs, start, stroke.size);
+        System.arraycopy(stroke.ys, 0, ys, start, stroke.size);
+        System.arraycopy(stroke.flags, 0, flags, start, stroke.size);
+        size += stroke.size;
+    }
+
+    @NonNull
+    StrokeBuffer copy() {
+        StrokeBuffer copy = new StrokeBuffer();
+        copy.xs = Arrays.copyOf(xs, Math.max(size, 1));
+        copy.ys = Arrays.copyOf(ys, Math.max(size, 1));
+        copy.flags = Arrays.copyOf(flags, Math.max(size, 1));
+        copy.size = size;
+        return copy;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    float getX(int index) {
+        return xs[index];
+    }
+
+    float getY(int index) {
+        return ys[index];
+    }
+
+    boolean isThin(int index) {
+        return (flags[index] & FLAG_THIN) != 0;
+    }
+
+    boolean isPixelate(int index) {
+        return (flags[index] & FLAG_PIXELATE) != 0;
+    }
+
+    /**
+     * @return one of {@link #BRUSH_THICK}, {@link #BRUSH_THIN} or {@link #BRUSH_PIXELATE}
+     */
+    int getBrush(int index) {
+        return flags[index] & BRUSH_MASK;
+    }
+
+    /**
+     * @return true if any point was drawn with the brush
+     */
+    boolean hasBrush(int brush) {
+        for (int i = 0; i < size; i++) {
+            if ((flags[i] & BRUSH_MASK) == brush) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a copy with only the points drawn with the brush, or only the points drawn with the
+     * other brushes
+     */
+    @NonNull
+    StrokeBuffer filter(int brush, boolean keep) {
+        StrokeBuffer filtered = new StrokeBuffer();
+        for (int i = 0; i < size; i++) {
+            if (((flags[i] & BRUSH_MASK) == brush) == keep) {
+                filtered.add(flags[i] & BRUSH_MASK, (flags[i] & FLAG_MOVE) != 0, xs[i], ys[i]);
+            }
+        }
+        return filtered;
+    }
+
+    boolean isMove(int index) {
+        return (flags[index] & FLAG_MOVE) != 0;
+    }
+
+    /**
+     * @return the points in the compact form described above
+     */
+    @NonNull
+    byte[] encode() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(8 + size * 3);
+        writeVarint(outputStream, countStrokes());
+
+        int start = 0;
+        while (start < size) {
+            int end = start + 1;
+            while (end < size && flags[end] == (flags[start] & BRUSH_MASK)) {
+                end++;
+            }
+
+            outputStream.write(flags[start]);
+            writeVarint(outputStream, end - start);
+            int previousX = 0;
+            int previousY = 0;
+            for (int i = start; i < end; i++) {
+                int x = Math.round(xs[i] * QUANTUM);
+                int y = Math.round(ys[i] * QUANTUM);
+                writeVarint(outputStream, zigzag(x - previousX));
+                writeVarint(outputStream, zigzag(y - previousY));
+                previousX = x;
+                previousY = y;
+            }
+            start = end;
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * @return the points read back from {@link #encode()}
+     * @throws IllegalArgumentException if the bytes are malformed
+     */
+    @NonNull
+    static StrokeBuffer decode(@NonNull byte[] bytes) {
+        StrokeBuffer buffer = new StrokeBuffer();
+        int[] position = new int[1];
+        int strokeCount = readVarint(bytes, position);
+        for (int stroke = 0; stroke < strokeCount; stroke++) {
+            if (position[0] >= bytes.length) {
+                throw new IllegalArgumentException("Truncated strokes");
+            }
+            byte strokeFlags = bytes[position[0]++];
+            int brush = strokeFlags & BRUSH_MASK;
+            int pointCount = readVarint(bytes, position);
+            int x = 0;
+            int y = 0;
+            for (int i = 0; i < pointCount; i++) {
+                x += unzigzag(readVarint(bytes, position));
+                y += unzigzag(readVarint(bytes, position));
+                buffer.add(brush, i == 0 && (strokeFlags & FLAG_MOVE) != 0, x / QUANTUM, y / QUANTUM);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * A stroke is a run of points with the same brush, starting at a move.
+     */
+    int countStrokes() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || flags[i] != (flags[i - 1] & BRUSH_MASK)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(@NonNull ByteArrayOutputStream outputStream, int value) {
+        while ((value & ~0x7F) != 0) {
+            outputStream.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        outputStream.write(value);
+    }
+
+    private static int readVarint(@NonNull byte[] bytes, @NonNull int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position[0] >= bytes.length) {
+                throw new IllegalArgumentException("Truncated varint");
+            }
+            byte b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the segments of a {@link StrokeBuffer}, so that finding the stroke under a
+ * touch only looks at the segments near it rather than every point drawn so far.
+ * <p/>
+ * Each segment is listed in every cell it passes through, by the id of its stroke and its offset
+ * in the stroke. A stroke with a single point is listed as a segment of length zero. Where each
+ * stroke starts in the buffer is kept by id, so removing or inserting a stroke only updates the
+ * cells of that stroke, and shifts the starts of the strokes after it.
+ */
+final class StrokeIndex {
+    private static final int INITIAL_CELL_CAPACITY = 64;
+    private static final int INITIAL_STROKE_CAPACITY = 16;
+
+    private final float cellSize;
+    private final float thinHalfWidth;
+    private final float thickHalfWidth;
+
+    /** Open addressing table of the cells, keyed by their packed coordinates, without boxing. */
+    private long[] keys = new long[INITIAL_CELL_CAPACITY];
+    private Cell[] cells = new Cell[INITIAL_CELL_CAPACITY];
+    private int cellCount;
+
+    /** Where each stroke starts in the buffer, by id, or -1 once it has been removed. */
+    private int[] starts = new int[INITIAL_STROKE_CAPACITY];
+    private int nextId;
+
+    /**
+     * @param cellSize the size of the grid cells, in the same units as the points
+     * @param thinWidth the width the thin brush is drawn with
+     * @param thickWidth the width the other brushes are drawn with
+     */
+    StrokeIndex(float cellSize, float thinWidth, float thickWidth) {
+        this.cellSize = cellSize;
+        this.thinHalfWidth = thinWidth / 2;
+        this.thickHalfWidth = thickWidth / 2;
+    }
+
+    void clear() {
+        Arrays.fill(cells, null);
+        cellCount = 0;
+        nextId = 0;
+    }
+
+    /**
+     * Indexes all the strokes again, e.g. after the buffer was replaced.
+     */
+    void rebuild(@NonNull StrokeBuffer strokes) {
+        clear();
+        int start = 0;
+        while (start < strokes.size()) {
+            addStroke(strokes, start);
+            start = strokes.getStrokeEnd(start);
+        }
+    }
+
+    /**
+     * Adds the segments of the stroke that starts at the index, which must be the last stroke.
+     */
+    void addStroke(@NonNull StrokeBuffer strokes, int start) {
+        if (nextId == starts.length) {
+            starts = Arrays.copyOf(starts, nextId * 2);
+        }
+        int id = nextId++;
+        starts[id] = start;
+        updateStroke(strokes, start, id, true);
+    }
+
+    /**
+     * Adds the segments of the stroke that was just inserted into the buffer at the index, moving
+     * the strokes after it along.
+     */
+    void insertStroke(@NonNull StrokeBuffer strokes, int start) {
+        shiftStarts(start, strokes.getStrokeEnd(start) - start);
+        addStroke(strokes, start);
+    }
+
+    /**
+     * Removes the segments of the stroke that starts at the index. Must be called before the stroke
+     * is removed from the buffer.
+     */
+    void removeStroke(@NonNull StrokeBuffer strokes, int start) {
+        int id = findId(start);
+        if (id == -1) {
+            return;
+        }
+        updateStroke(strokes, start, id, false);
+        starts[id] = -1;
+        shiftStarts(start + 1, start - strokes.getStrokeEnd(start));
+    }
+
+    private int findId(int start) {
+        for (int id = 0; id < nextId; id++) {
+            if (starts[id] == start) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the starts of the strokes at or after the index by the distance.
+     */
+    private void shiftStarts(int from, int distance) {
+        for (int id = 0; id < nextId; id++) {
+            if (starts[id] >= from) {
+                starts[id] += distance;
+            }
+        }
+    }
+
+    private void updateStroke(@NonNull StrokeBuffer strokes, int start, int id, boolean isAdding) {
+        int end = strokes.getStrokeEnd(start);
+        if (end - start == 1) {
+            updateSegment(id, 0, strokes.getX(start), strokes.getY(start),
+                    strokes.getX(start), strokes.getY(start), isAdding);
+            return;
+        }
+        for (int i = start; i < end - 1; i++) {
+            updateSegment(id, i - start, strokes.getX(i), strokes.getY(i),
+                    strokes.getX(i + 1), strokes.getY(i + 1), isAdding);
+        }
+    }
+
+    /**
+     * Walks the cells the segment passes through, stepping into whichever neighbouring cell the
+     * segment reaches first.
+     */
+    private void updateSegment(int id, int offset, float x0, float y0, float x1, float y1, boolean isAdding) {
+        int cellX = cellOf(x0);
+        int cellY = cellOf(y0);
+        int endX = cellOf(x1);
+        int endY = cellOf(y1);
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        float deltaX = dx != 0 ? cellSize / Math.abs(dx) : Float.POSITIVE_INFINITY;
+        float deltaY = dy != 0 ? cellSize / Math.abs(dy) : Float.POSITIVE_INFINITY;
+        float nextX = dx != 0 ? ((cellX + (dx > 0 ? 1 : 0)) * cellSize - x0) / dx : Float.POSITIVE_INFINITY;
+        float nextY = dy != 0 ? ((cellY + (dy > 0 ? 1 : 0)) * cellSize - y0) / dy : Float.POSITIVE_INFINITY;
+
+        int steps = Math.abs(endX - cellX) + Math.abs(endY - cellY);
+        for (int step = 0; ; step++) {
+            if (isAdding) {
+                getOrCreateCell(cellX, cellY).add(id, offset);
+            } else {
+                Cell cell = getCell(cellX, cellY);
+                if (cell != null) {
+                    cell.remove(id);
+                }
+            }
+            if (step == steps) {
+                break;
+            }
+            if (nextX < nextY) {
+                nextX += deltaX;
+                cellX += stepX;
+            } else {
+                nextY += deltaY;
+                cellY += stepY;
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first point of a stroke that passes within the radius of the point,
+     * taking the width it is drawn with into account, or -1 if there is none
+     */
+    int findStroke(@NonNull StrokeBuffer strokes, float x, float y, float radius) {
+        float reach = radius + Math.max(thinHalfWidth, thickHalfWidth);
+        int minX = cellOf(x - reach);
+        int maxX = cellOf(x + reach);
+        int minY = cellOf(y - reach);
+        int maxY = cellOf(y + reach);
+        for (int cellX = minX; cellX <= maxX; cellX++) {
+            for (int cellY = minY; cellY <= maxY; cellY++) {
+                Cell cell = getCell(cellX, cellY);
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size; i++) {
+                    int start = starts[cell.ids[i]];
+                    int index = start + cell.offsets[i];
+                    if (start >= 0 && index < strokes.size() && isHit(strokes, index, x, y, radius)) {
+                        return start;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean isHit(@NonNull StrokeBuffer strokes, int index, float x, float y, float radius) {
+        float reach = radius + (strokes.isThin(index) ? thinHalfWidth : thickHalfWidth);
+        float x0 = strokes.getX(index);
+        float y0 = strokes.getY(index);
+        float dx = 0;
+        float dy = 0;
+        if (index + 1 < strokes.size() && !strokes.isMove(index + 1)) {
+            dx = strokes.getX(index + 1) - x0;
+            dy = strokes.getY(index + 1) - y0;
+        }
+        float px = x - x0;
+        float py = y - y0;
+        float lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared > 0) {
+            float t = Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+            px -= t * dx;
+            py -= t * dy;
+        }
+        return px * px + py * py <= reach * reach;
+    }
+
+    private int cellOf(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    @Nullable
+    private Cell getCell(int cellX, int cellY) {
+        long key = key(cellX, cellY);
+        for (int slot = slotOf(key); cells[slot] != null; slot = (slot + 1) & (cells.length - 1)) {
+            if (keys[slot] == key) {
+                return cells[slot];
+            }
+        }
+        return null;
+    }
+
+    @NonNull
+    private Cell getOrCreateCell(int cellX, int cellY) {
+        long key = key(cellX, cellY);
+        int slot = slotOf(key);
+        while (cells[slot] != null) {
+            if (keys[slot] == key) {
+                return cells[slot];
+            }
+            slot = (slot + 1) & (cells.length - 1);
+        }
+
+        // cells are left in place once empty, so the table never needs tombstones
+        Cell cell = new Cell();
+        keys[slot] = key;
+        cells[slot] = cell;
+        cellCount++;
+        if (cellCount * 2 > cells.length) {
+            grow();
+        }
+        return cell;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Cell[] oldCells = cells;
+        keys = new long[oldKeys.length * 2];
+        cells = new Cell[oldCells.length * 2];
+        for (int i = 0; i < oldCells.length; i++) {
+            if (oldCells[i] == null) {
+                continue;
+            }
+            int slot = slotOf(oldKeys[i]);
+            while (cells[slot] != null) {
+                slot = (slot + 1) & (cells.length - 1);
+            }
+            keys[slot] = oldKeys[i];
+            cells[slot] = oldCells[i];
+        }
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (cells.length - 1);
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The segments passing through one cell of the grid.
+     */
+    private static class Cell {
+        int[] ids = new int[4];
+        int[] offsets = new int[4];
+        int size;
+
+        void add(int id, int offset) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            ids[size] = id;
+            offsets[size] = offset;
+            size++;
+        }
+
+        /**
+         * Removes all the segments of the stroke.
+         */
+        void remove(int id) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    offsets[i] = offsets[size];
+                }
+            }
+        }
+    }
+}
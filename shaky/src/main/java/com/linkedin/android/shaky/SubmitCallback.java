@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+
+/**
+ * Reports the outcome of {@link ShakeDelegate#submitAsync}. Can be called from any thread, and only
+ * the first call to {@link #onSuccess()} or {@link #onFailure(Throwable)} is used.
+ */
+public interface SubmitCallback {
+
+    /**
+     * Reports how far the submission has progressed, e.g. in bytes uploaded.
+     *
+     * @param completed the amount of work done so far
+     * @param total     the total amount of work, or -1 if unknown
+     */
+    @AnyThread
+    void onProgress(long completed, long total);
+
+    /**
+     * The feedback has been submitted.
+     */
+    @AnyThread
+    void onSuccess();
+
+    /**
+     * The feedback could not be submitted.
+     */
+    @AnyThread
+    void onFailure(@NonNull Throwable error);
+}
@@ -16,8 +16,13 @@
 package com.linkedin.android.shaky;
 
 import android.annotation.SuppressLint;
+import android.content.ContentResolver;
 import android.content.Context;
+import android.content.pm.ProviderInfo;
+import android.database.Cursor;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
 import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.net.Uri;
@@ -28,19 +33,29 @@ import androidx.annotation.WorkerThread;
 import androidx.core.content.FileProvider;
 
 import android.os.Build;
+import android.os.CancellationSignal;
 import android.os.Handler;
 import android.os.Looper;
+import android.provider.OpenableColumns;
 import android.util.Log;
 import android.view.ContextThemeWrapper;
 import android.view.LayoutInflater;
 import android.view.PixelCopy;
 import android.view.View;
 import android.view.Window;
+import android.webkit.MimeTypeMap;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.util.Locale;
 
 final class Utils {
@@ -48,6 +63,7 @@ final class Utils {
     private static final String FILE_NAME_TEMPLATE = "%s_%s.jpg";
     private static final String BITMAP_PREFIX = "bitmap";
     private static final String FILE_PROVIDER_SUFFIX = ".fileprovider";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
 
     // prevent instantiation
     private Utils() {}
@@ -67,11 +83,25 @@ final class Utils {
     @Nullable
     @WorkerThread
     static File writeBitmapToDirectory(@NonNull Bitmap bitmap, @NonNull File directory) {
+        return writeBitmapToDirectory(bitmap, directory, null);
+    }
+
+    /**
+     * Writes the bitmap the directory, creating the directory if it doesn't exist.
+     *
+     * @param cancellationSignal if cancelled while the bitmap is being written, the write is
+     *                           aborted and null is returned
+     */
+    @Nullable
+    @WorkerThread
+    static File writeBitmapToDirectory(@NonNull Bitmap bitmap,
+                                       @NonNull File directory,
+                                       @Nullable CancellationSignal cancellationSignal) {
         if (!directory.mkdirs() && !directory.exists()) {
             Log.e(TAG, "Failed to create directory for bitmap.");
             return null;
         }
-        return writeBitmapToFile(bitmap, new File(directory, createUniqueFilename(BITMAP_PREFIX)));
+        return writeBitmapToFile(bitmap, new File(directory, createUniqueFilename(BITMAP_PREFIX)), cancellationSignal);
     }
 
     /**
@@ -82,18 +112,61 @@ final class Utils {
      */
     @Nullable
     @WorkerThread
+    static File writeBitmapToFile(@NonNull Bitmap bitmap, @NonNull File file) {
+        return writeBitmapToFile(bitmap, file, null);
+    }
+
+    /**
+     * Writes the bitmap to disk and returns the new file. The encoder streams straight into the
+     * file, so a cancellation is noticed at the next write rather than after the whole image has
+     * been encoded.
+     *
+     * @param bitmap             Bitmap the bitmap to write
+     * @param file               the file to write to
+     * @param cancellationSignal if cancelled while the bitmap is being written, the partial file
+     *                           is deleted and null is returned
+     */
+    @Nullable
+    @WorkerThread
+    static File writeBitmapToFile(@NonNull Bitmap bitmap,
+                                  @NonNull File file,
+                                  @Nullable CancellationSignal cancellationSignal) {
+        return writeBitmapToFile(bitmap, file, Bitmap.CompressFormat.PNG, 0, cancellationSignal);
+    }
+
+    /**
+     * Writes the bitmap to disk in the given format and returns the new file.
+     *
+     * @param quality            the quality hint for lossy formats, see {@link Bitmap#compress}
+     * @param cancellationSignal if cancelled while the bitmap is being written, the partial file
+     *                           is deleted and null is returned
+     */
+    @Nullable
+    @WorkerThread
     // suppress lint check for AGP 3.2 https://issuetracker.google.com/issues/116776070
     @SuppressLint("WrongThread")
-    static File writeBitmapToFile(@NonNull Bitmap bitmap, @NonNull File file) {
-        FileOutputStream fileStream = null;
+    static File writeBitmapToFile(@NonNull Bitmap bitmap,
+                                  @NonNull File file,
+                                  @NonNull Bitmap.CompressFormat format,
+                                  int quality,
+                                  @Nullable CancellationSignal cancellationSignal) {
+        OutputStream fileStream = null;
+        boolean written = false;
         try {
-            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-            bitmap.compress(Bitmap.CompressFormat.PNG, 0, byteStream);
             fileStream = new FileOutputStream(file);
-            fileStream.write(byteStream.toByteArray());
-            return file;
+            // encrypt behind the buffer, so the cipher works on large blocks in the same pass as the encoder
+            fileStream = new BufferedOutputStream(AtRestEncryption.wrap(fileStream), WRITE_BUFFER_SIZE);
+            if (cancellationSignal != null) {
+                fileStream = new CancellableOutputStream(fileStream, cancellationSignal);
+            }
+            written = bitmap.compress(format, quality, fileStream);
+            fileStream.close();
+            fileStream = null;
         } catch (IOException e) {
-            Log.e(TAG, e.getMessage(), e);
+            written = false;
+            if (cancellationSignal == null || !cancellationSignal.isCanceled()) {
+                Log.e(TAG, e.getMessage(), e);
+            }
         } finally {
             if (fileStream != null) {
                 try {
@@ -103,7 +176,14 @@ final class Utils {
                 }
             }
         }
-        return null;
+
+        if (!written || (cancellationSignal != null && cancellationSignal.isCanceled())) {
+            if (file.exists() && !file.delete()) {
+                Log.e(TAG, "Could not delete partially written bitmap: " + file);
+            }
+            return null;
+        }
+        return file;
     }
 
     /**
@@ -132,6 +212,37 @@ final class Utils {
         }
     }
 
+    /**
+     * Saves the view as a Bitmap screenshot, and passes it to the callback on the main thread once
+     * it has actually been copied from the window.
+     */
+    static void capture(@NonNull View view,
+                        @NonNull Window window,
+                        @NonNull MultiWindowScreenshotCapture.CaptureCallback callback) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            if (view.getWidth() == 0 || view.getHeight() == 0) {
+                callback.onCaptureComplete(null);
+                return;
+            }
+
+            Bitmap bitmap = Bitmap.createBitmap(view.getWidth(), view.getHeight(), Bitmap.Config.ARGB_8888);
+            int[] location = new int[2];
+            view.getLocationInWindow(location);
+            PixelCopy.request(window,
+                    new Rect(location[0], location[1], location[0] + view.getWidth(), location[1] + view.getHeight()),
+                    bitmap, copyResult -> {
+                        if (copyResult != PixelCopy.SUCCESS) {
+                            Log.e(TAG, "PixelCopy failed with result: " + copyResult);
+                        }
+                        // a failed copy is still a blank screenshot of the right size, as before
+                        callback.onCaptureComplete(bitmap);
+                    },
+                    new Handler(Looper.getMainLooper()));
+        } else {
+            callback.onCaptureComplete(capture(view, window));
+        }
+    }
+
     /**
      * Get the file provider Uri, so that internal files can be temporarily shared with other apps.
      *
@@ -154,6 +265,317 @@ final class Utils {
         return getProviderUri(context, file);
     }
 
+    /**
+     * @return the class name of the provider {@link #getProviderUri} shares files through, or null
+     * if the app doesn't declare one
+     */
+    @Nullable
+    static String getProviderClassName(@NonNull Context context) {
+        String authority = context.getPackageName() + FILE_PROVIDER_SUFFIX;
+        ProviderInfo info = context.getPackageManager().resolveContentProvider(authority, 0);
+        return info != null ? info.name : null;
+    }
+
+    /**
+     * Opens the Uri for reading, decrypting it if it was written with encryption at rest. File Uris
+     * are opened directly, anything else goes through the {@link android.content.ContentResolver}.
+     */
+    @NonNull
+    @WorkerThread
+    static InputStream openInputStream(@NonNull Context context, @NonNull Uri uri) throws IOException {
+        InputStream inputStream;
+        if (ContentResolver.SCHEME_FILE.equals(uri.getScheme())) {
+            inputStream = new FileInputStream(uri.getPath());
+        } else {
+            inputStream = context.getContentResolver().openInputStream(uri);
+            if (inputStream == null) {
+                throw new FileNotFoundException("Could not open " + uri);
+            }
+        }
+
+        try {
+            return AtRestEncryption.unwrap(inputStream);
+        } catch (IOException e) {
+            closeQuietly(inputStream);
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the Uri for writing. A file that was encrypted at rest is written encrypted again.
+     */
+    @NonNull
+    static OutputStream openOutputStream(@NonNull Context context, @NonNull Uri uri) throws IOException {
+        boolean wasEncrypted = ContentResolver.SCHEME_FILE.equals(uri.getScheme())
+                && AtRestEncryption.isEncrypted(new File(uri.getPath()));
+        OutputStream outputStream = context.getContentResolver().openOutputStream(uri);
+        if (outputStream == null) {
+            throw new FileNotFoundException("Could not open " + uri);
+        }
+        if (!wasEncrypted) {
+            return outputStream;
+        }
+
+        try {
+            return AtRestEncryption.wrap(outputStream);
+        } catch (IOException e) {
+            closeQuietly(outputStream);
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the image at the Uri, subsampled as far as possible while still being at least as
+     * large as the requested size. The memory of a bitmap from {@link BitmapPool} is reused if
+     * there is one large enough.
+     *
+     * @return the mutable image, or null if it can't be read
+     */
+    @Nullable
+    @WorkerThread
+    static Bitmap decodeSampledBitmap(@NonNull Context context,
+                                      @NonNull Uri uri,
+                                      int reqWidth,
+                                      int reqHeight) {
+        BitmapFactory.Options options = decodeBounds(context, uri);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= reqWidth
+                && options.outHeight / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+
+        int width = (options.outWidth + sampleSize - 1) / sampleSize;
+        int height = (options.outHeight + sampleSize - 1) / sampleSize;
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inBitmap = BitmapPool.obtain(width * height * 4);
+        try {
+            return decodeStream(context, uri, options);
+        } catch (IllegalArgumentException e) {
+            if (options.inBitmap == null) {
+                throw e;
+            }
+            // the pooled bitmap can't hold this image after all
+            BitmapPool.release(options.inBitmap);
+            options.inBitmap = null;
+            return decodeStream(context, uri, options);
+        }
+    }
+
+    /**
+     * @return options with the size of the image at the Uri in {@code outWidth} and
+     * {@code outHeight}, which are -1 if it can't be read
+     */
+    @NonNull
+    @WorkerThread
+    static BitmapFactory.Options decodeBounds(@NonNull Context context, @NonNull Uri uri) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeStream(context, uri, options);
+        return options;
+    }
+
+    /**
+     * Decodes just the region of the image at the Uri, at full resolution.
+     *
+     * @return the mutable region, or null if it can't be read
+     */
+    @Nullable
+    @WorkerThread
+    static Bitmap decodeRegion(@NonNull Context context, @NonNull Uri uri, @NonNull Rect region) {
+        InputStream inputStream = null;
+        BitmapRegionDecoder decoder = null;
+        try {
+            inputStream = openInputStream(context, uri);
+            decoder = newRegionDecoder(inputStream);
+            if (decoder == null) {
+                return null;
+            }
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inMutable = true;
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            Bitmap bitmap = decoder.decodeRegion(region, options);
+            if (bitmap != null && !bitmap.isMutable()) {
+                Bitmap copy = bitmap.copy(Bitmap.Config.ARGB_8888, true);
+                bitmap.recycle();
+                bitmap = copy;
+            }
+            return bitmap;
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Could not decode " + region + " of " + uri, e);
+            return null;
+        } finally {
+            if (decoder != null) {
+                decoder.recycle();
+            }
+            closeQuietly(inputStream);
+        }
+    }
+
+    @Nullable
+    @SuppressWarnings("deprecation")
+    static BitmapRegionDecoder newRegionDecoder(@NonNull InputStream inputStream) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return BitmapRegionDecoder.newInstance(inputStream);
+        }
+        return BitmapRegionDecoder.newInstance(inputStream, false);
+    }
+
+    @Nullable
+    @WorkerThread
+    private static Bitmap decodeStream(@NonNull Context context,
+                                       @NonNull Uri uri,
+                                       @NonNull BitmapFactory.Options options) {
+        InputStream inputStream = null;
+        try {
+            inputStream = openInputStream(context, uri);
+            return BitmapFactory.decodeStream(inputStream, null, options);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not decode " + uri, e);
+            return null;
+        } finally {
+            closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * @return the size of the Uri's content in bytes, once decrypted if it was written with
+     * encryption at rest, or -1 if it is unknown
+     */
+    @WorkerThread
+    static long getSize(@NonNull Context context, @NonNull Uri uri) {
+        if (ContentResolver.SCHEME_FILE.equals(uri.getScheme())) {
+            File file = new File(uri.getPath());
+            return file.isFile() ? AtRestEncryption.getContentLength(file) : -1;
+        }
+        Cursor cursor = queryOpenable(context, uri);
+        if (cursor == null) {
+            return -1;
+        }
+        try {
+            int index = cursor.getColumnIndex(OpenableColumns.SIZE);
+            return index >= 0 && !cursor.isNull(index) ? cursor.getLong(index) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return a file name for the Uri's content, suitable for showing to people or sending to a server
+     */
+    @NonNull
+    @WorkerThread
+    static String getDisplayName(@NonNull Context context, @NonNull Uri uri) {
+        String name = null;
+        if (!ContentResolver.SCHEME_FILE.equals(uri.getScheme())) {
+            Cursor cursor = queryOpenable(context, uri);
+            if (cursor != null) {
+                try {
+                    int index = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+                    name = index >= 0 ? cursor.getString(index) : null;
+                } finally {
+                    cursor.close();
+                }
+            }
+        }
+        if (name == null) {
+            name = uri.getLastPathSegment();
+        }
+        return name != null ? name : "attachment";
+    }
+
+    /**
+     * @return the MIME type of the Uri's content, falling back to application/octet-stream
+     */
+    @NonNull
+    static String getMimeType(@NonNull Context context, @NonNull Uri uri) {
+        String type = null;
+        if (ContentResolver.SCHEME_FILE.equals(uri.getScheme())) {
+            String extension = MimeTypeMap.getFileExtensionFromUrl(uri.toString());
+            type = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension.toLowerCase(Locale.US));
+        } else {
+            try {
+                type = context.getContentResolver().getType(uri);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Could not get type of " + uri, e);
+            }
+        }
+        return type != null ? type : "application/octet-stream";
+    }
+
+    @Nullable
+    private static Cursor queryOpenable(@NonNull Context context, @NonNull Uri uri) {
+        try {
+            Cursor cursor = context.getContentResolver().query(uri, null, null, null, null);
+            if (cursor != null && !cursor.moveToFirst()) {
+                cursor.close();
+                return null;
+            }
+            return cursor;
+        } catch (RuntimeException e) {
+            // e.g. a SecurityException from a provider we can't read
+            Log.e(TAG, "Could not query " + uri, e);
+            return null;
+        }
+    }
+
+    /**
+     * Copies the stream to the file, encrypting it if encryption at rest is enabled, and closes it.
+     *
+     * @return the number of bytes copied
+     */
+    @WorkerThread
+    static long copyToFile(@NonNull InputStream inputStream, @NonNull File file) throws IOException {
+        return copyToFile(inputStream, file, true);
+    }
+
+    /**
+     * Copies the stream to the file and closes it.
+     *
+     * @param encrypt whether to encrypt the copy if encryption at rest is enabled
+     * @return the number of bytes copied
+     */
+    @WorkerThread
+    static long copyToFile(@NonNull InputStream inputStream, @NonNull File file, boolean encrypt) throws IOException {
+        OutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(file);
+            if (encrypt) {
+                outputStream = AtRestEncryption.wrap(outputStream);
+            }
+            byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+            long total = 0;
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+                total += read;
+            }
+            // closing writes the authentication tag when encrypting, so failures must not be ignored
+            outputStream.close();
+            outputStream = null;
+            return total;
+        } finally {
+            closeQuietly(inputStream);
+            closeQuietly(outputStream);
+        }
+    }
+
+    static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.e(TAG, e.getMessage(), e);
+            }
+        }
+    }
+
     /**
      * Return a new {@link android.view.LayoutInflater} that uses the given theme if the theme is valid,
      * or the given inflater otherwise
@@ -165,4 +587,35 @@ final class Utils {
         }
         return inflater;
     }
+
+    /**
+     * Fails the next write once the given signal has been cancelled, so that long running encoders
+     * such as {@link Bitmap#compress} bail out early.
+     */
+    private static final class CancellableOutputStream extends FilterOutputStream {
+        private final CancellationSignal cancellationSignal;
+
+        CancellableOutputStream(@NonNull OutputStream out, @NonNull CancellationSignal cancellationSignal) {
+            super(out);
+            this.cancellationSignal = cancellationSignal;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            throwIfCanceled();
+            out.write(b);
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            throwIfCanceled();
+            out.write(b, off, len);
+        }
+
+        private void throwIfCanceled() throws InterruptedIOException {
+            if (cancellationSignal.isCanceled()) {
+                throw new InterruptedIOException("Write cancelled");
+            }
+        }
+    }
 }
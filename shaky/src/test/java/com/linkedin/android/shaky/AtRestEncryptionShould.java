@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Behavior tests for {@link AtRestEncryption}, with a plain key standing in for the Keystore one.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AtRestEncryptionShould {
+    private static final int ENCRYPTED_SEGMENT_SIZE = AtRestEncryption.SEGMENT_SIZE + AtRestEncryption.TAG_LENGTH;
+
+    Context context;
+    Random random;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        random = new Random(42);
+        byte[] keystoreKey = new byte[32];
+        random.nextBytes(keystoreKey);
+        AtRestEncryption.setKeystoreKey(new SecretKeySpec(keystoreKey, "AES"));
+        AtRestEncryption.setEnabled(context, true);
+    }
+
+    @After
+    public void tearDown() {
+        AtRestEncryption.setEnabled(context, false);
+        AtRestEncryption.setKeystoreKey(null);
+    }
+
+    @Test
+    public void readBackWhatWasWrittenAcrossSegments() throws IOException {
+        int[] sizes = {0, 1, AtRestEncryption.SEGMENT_SIZE - 1, AtRestEncryption.SEGMENT_SIZE,
+                AtRestEncryption.SEGMENT_SIZE + 1, 2 * AtRestEncryption.SEGMENT_SIZE + 100};
+        for (int size : sizes) {
+            byte[] plaintext = randomBytes(size);
+            byte[] encrypted = encrypt(plaintext);
+
+            assertTrue(AtRestEncryption.isEncrypted(new ByteArrayInputStream(encrypted)));
+            assertTrue(size == 0 || !Arrays.equals(plaintext, Arrays.copyOfRange(encrypted,
+                    AtRestEncryption.HEADER_LENGTH, AtRestEncryption.HEADER_LENGTH + size)));
+            assertArrayEquals(plaintext, decrypt(encrypted));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectFileTruncatedAtSegmentBoundary() throws IOException {
+        byte[] encrypted = encrypt(randomBytes(2 * AtRestEncryption.SEGMENT_SIZE + 100));
+
+        // the first segment on its own is intact, but was not written as the last one
+        decrypt(Arrays.copyOf(encrypted, AtRestEncryption.HEADER_LENGTH + ENCRYPTED_SEGMENT_SIZE));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectReorderedSegments() throws IOException {
+        byte[] encrypted = encrypt(randomBytes(3 * AtRestEncryption.SEGMENT_SIZE));
+        int first = AtRestEncryption.HEADER_LENGTH;
+        int second = first + ENCRYPTED_SEGMENT_SIZE;
+        byte[] reordered = encrypted.clone();
+        System.arraycopy(encrypted, second, reordered, first, ENCRYPTED_SEGMENT_SIZE);
+        System.arraycopy(encrypted, first, reordered, second, ENCRYPTED_SEGMENT_SIZE);
+
+        decrypt(reordered);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectTamperedTag() throws IOException {
+        byte[] encrypted = encrypt(randomBytes(1000));
+        encrypted[encrypted.length - 1] ^= 1;
+
+        decrypt(encrypted);
+    }
+
+    @Test
+    public void reportLengthOfDecryptedContent() throws IOException {
+        int[] sizes = {0, 1, AtRestEncryption.SEGMENT_SIZE, AtRestEncryption.SEGMENT_SIZE + 1,
+                3 * AtRestEncryption.SEGMENT_SIZE - 7};
+        for (int size : sizes) {
+            File file = new File(context.getFilesDir(), "encrypted_" + size);
+            OutputStream outputStream = AtRestEncryption.wrap(new FileOutputStream(file));
+            outputStream.write(randomBytes(size));
+            outputStream.close();
+
+            assertTrue(AtRestEncryption.isEncrypted(file));
+            assertEquals(size, AtRestEncryption.getContentLength(file));
+        }
+    }
+
+    @Test
+    public void passPlainFilesThroughUnchanged() throws IOException {
+        byte[] plaintext = "plain text".getBytes("UTF-8");
+        File file = new File(context.getFilesDir(), "plain.txt");
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(plaintext);
+        outputStream.close();
+
+        assertFalse(AtRestEncryption.isEncrypted(file));
+        assertEquals(plaintext.length, AtRestEncryption.getContentLength(file));
+        assertArrayEquals(plaintext, decrypt(plaintext));
+        assertArrayEquals(new byte[]{'S', 'H'}, decrypt(new byte[]{'S', 'H'}));
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] encrypt(byte[] plaintext) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream outputStream = AtRestEncryption.wrap(bytes);
+        outputStream.write(plaintext);
+        outputStream.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decrypt(byte[] encrypted) throws IOException {
+        InputStream inputStream = AtRestEncryption.unwrap(new ByteArrayInputStream(encrypted));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        inputStream.close();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.net.Uri;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Behavior tests for {@link AttachmentBudget}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AttachmentBudgetShould {
+
+    Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    @Test
+    public void leaveAttachmentsWithinBudgetAlone() throws IOException {
+        Uri log = Uri.fromFile(createFile("log.txt", 1000, false));
+        Result result = new Result();
+        result.getAttachments().add(log);
+
+        AttachmentBudget.apply(context, result, 1000);
+
+        assertEquals(Arrays.asList(log), result.getAttachments());
+        assertTrue(result.getAttachmentReport().isEmpty());
+    }
+
+    @Test
+    public void gzipTextToFitBudget() throws IOException {
+        Result result = new Result();
+        result.getAttachments().add(Uri.fromFile(createFile("log.txt", 100000, false)));
+
+        AttachmentBudget.apply(context, result, 10000);
+
+        assertTrue(totalSize(result) <= 10000);
+        assertTrue(result.getAttachments().get(0).getPath().endsWith("log.txt.gz"));
+        assertEquals(1, result.getAttachmentReport().size());
+    }
+
+    @Test
+    public void truncateTextToKeepItsEnd() throws IOException {
+        File log = createFile("log.txt", 100000, true);
+        byte[] original = readFully(new FileInputStream(log));
+        Result result = new Result();
+        result.getAttachments().add(Uri.fromFile(log));
+
+        AttachmentBudget.apply(context, result, 10000);
+
+        assertTrue(totalSize(result) <= 10000);
+        assertTrue(result.getAttachmentReport().get(0).startsWith("log.txt: truncated"));
+        byte[] truncated = readFully(new GZIPInputStream(
+                new FileInputStream(result.getAttachments().get(0).getPath())));
+        byte[] header = "[Truncated to fit the attachment size limit]\n".getBytes("UTF-8");
+        assertArrayEquals(header, Arrays.copyOf(truncated, header.length));
+        assertArrayEquals(Arrays.copyOfRange(original, original.length - truncated.length + header.length,
+                original.length), Arrays.copyOfRange(truncated, header.length, truncated.length));
+    }
+
+    @Test
+    public void removeAttachmentsAsLastResort() throws IOException {
+        Result result = new Result();
+        result.getAttachments().add(Uri.fromFile(createFile("small.bin", 100, true)));
+        result.getAttachments().add(Uri.fromFile(createFile("large.bin", 5000, true)));
+
+        AttachmentBudget.apply(context, result, 1000);
+
+        assertEquals(1, result.getAttachments().size());
+        assertTrue(result.getAttachments().get(0).getPath().endsWith("small.bin"));
+        assertTrue(result.getAttachmentReport().get(0).startsWith("large.bin: removed"));
+    }
+
+    private File createFile(String name, int size, boolean random) throws IOException {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = random ? (byte) (Math.random() * 256) : (byte) ('a' + i % 26);
+        }
+        File file = new File(context.getFilesDir(), name);
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(bytes);
+        outputStream.close();
+        return file;
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        inputStream.close();
+        return outputStream.toByteArray();
+    }
+
+    private static long totalSize(Result result) {
+        long total = 0;
+        for (Uri uri : result.getAttachments()) {
+            total += new File(uri.getPath()).length();
+        }
+        return total;
+    }
+}
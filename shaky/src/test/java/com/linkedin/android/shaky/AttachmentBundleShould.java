@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.net.Uri;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Behavior tests for {@link AttachmentBundle}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AttachmentBundleShould {
+
+    Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    @Test
+    public void zipEveryAttachmentWithManifestLast() throws IOException {
+        Result result = createResult();
+
+        AttachmentBundle.apply(context, result);
+
+        assertEquals(1, result.getAttachments().size());
+        ZipFile zip = new ZipFile(result.getAttachments().get(0).getPath());
+        try {
+            List<String> names = new ArrayList<>();
+            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+                names.add(entries.nextElement().getName());
+            }
+            // the second log.txt is renamed, rather than replacing the first one
+            assertEquals(Arrays.asList("log.txt", "screenshot.png", "1_log.txt", "manifest.json"), names);
+            assertEquals(repeat("log line\n", 1000), read(zip, "log.txt"));
+            assertEquals(repeat("pixels", 1000), read(zip, "screenshot.png"));
+            assertEquals(repeat("other log line\n", 1000), read(zip, "1_log.txt"));
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void listAttachmentsInManifestInZipOrder() throws IOException, JSONException {
+        Result result = createResult();
+
+        AttachmentBundle.apply(context, result);
+
+        ZipFile zip = new ZipFile(result.getAttachments().get(0).getPath());
+        try {
+            JSONObject manifest = new JSONObject(read(zip, "manifest.json"));
+            assertEquals("Bug Report", manifest.getString("title"));
+            assertEquals("It crashed", manifest.getString("message"));
+
+            JSONArray attachments = manifest.getJSONArray("attachments");
+            assertEquals(3, attachments.length());
+            String[] names = {"log.txt", "screenshot.png", "1_log.txt"};
+            for (int i = 0; i < names.length; i++) {
+                JSONObject attachment = attachments.getJSONObject(i);
+                assertEquals(names[i], attachment.getString("name"));
+                assertEquals(zip.getEntry(names[i]).getSize(), attachment.getLong("size"));
+                assertEquals(names[i].equals("screenshot.png"), attachment.getBoolean("screenshot"));
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void storeCompressedFormatsWithoutDeflatingAgain() throws IOException {
+        Result result = createResult();
+
+        AttachmentBundle.apply(context, result);
+
+        ZipFile zip = new ZipFile(result.getAttachments().get(0).getPath());
+        try {
+            ZipEntry log = zip.getEntry("log.txt");
+            ZipEntry screenshot = zip.getEntry("screenshot.png");
+            assertTrue(log.getCompressedSize() < log.getSize() / 10);
+            assertTrue(screenshot.getCompressedSize() >= screenshot.getSize());
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void leaveResultWithoutAttachmentsAlone() {
+        Result result = new Result();
+
+        AttachmentBundle.apply(context, result);
+
+        assertTrue(result.getAttachments().isEmpty());
+        assertFalse(new File(context.getFilesDir(), "shaky_bundles").exists());
+    }
+
+    private Result createResult() throws IOException {
+        Result result = new Result();
+        result.setTitle("Bug Report");
+        result.setMessage("It crashed");
+        result.getAttachments().add(Uri.fromFile(createFile("log.txt", repeat("log line\n", 1000))));
+        result.setScreenshotUri(Uri.fromFile(createFile("screenshot.png", repeat("pixels", 1000))));
+        result.getAttachments().add(Uri.fromFile(createFile("other/log.txt", repeat("other log line\n", 1000))));
+        return result;
+    }
+
+    private File createFile(String name, String content) throws IOException {
+        File file = new File(context.getFilesDir(), name);
+        file.getParentFile().mkdirs();
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(content.getBytes("UTF-8"));
+        outputStream.close();
+        return file;
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder(text.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    private static String read(ZipFile zip, String name) throws IOException {
+        InputStream inputStream = zip.getInputStream(zip.getEntry(name));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        inputStream.close();
+        return outputStream.toString("UTF-8");
+    }
+}
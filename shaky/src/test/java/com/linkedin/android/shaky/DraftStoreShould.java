@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Behavior tests for {@link DraftStore}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DraftStoreShould {
+
+    Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    @After
+    public void tearDown() {
+        DraftStore.takeRestorable();
+    }
+
+    @Test
+    public void restoreEveryFieldOfRecentDraft() {
+        // longer than writeUTF could store
+        char[] longMessage = new char[70000];
+        Arrays.fill(longMessage, '\u00e9');
+        DraftStore.Draft draft = new DraftStore.Draft();
+        draft.savedAtMillis = System.currentTimeMillis();
+        draft.feedbackType = FeedbackItem.BUG;
+        draft.screenshotUri = Uri.fromFile(new File(context.getFilesDir(), "missing.png"));
+        draft.resultToken = "token";
+        draft.message = new String(longMessage);
+        draft.subcategory = Subcategories.Bug.CRASH;
+        draft.annotations = new byte[]{1, 2, 3};
+
+        DraftStore.write(draft, context.getFilesDir());
+        DraftStore.preload(context);
+        DraftStore.Draft restored = DraftStore.takeRestorable();
+
+        assertNotNull(restored);
+        assertEquals(draft.savedAtMillis, restored.savedAtMillis);
+        assertEquals(FeedbackItem.BUG, restored.feedbackType);
+        assertEquals(draft.screenshotUri, restored.screenshotUri);
+        assertEquals("token", restored.resultToken);
+        assertEquals(draft.message, restored.message);
+        assertEquals(Subcategories.Bug.CRASH, restored.subcategory);
+        assertArrayEquals(draft.annotations, restored.annotations);
+        // neither the collected data nor the screenshot are around anymore
+        assertFalse(restored.canRestoreAttachments);
+    }
+
+    @Test
+    public void deleteDraftOlderThanADay() {
+        DraftStore.Draft draft = new DraftStore.Draft();
+        draft.savedAtMillis = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2);
+        draft.message = "stale";
+
+        DraftStore.write(draft, context.getFilesDir());
+        DraftStore.preload(context);
+
+        assertNull(DraftStore.takeRestorable());
+        assertFalse(new File(context.getFilesDir(), "shaky_draft").exists());
+    }
+
+    @Test
+    public void ignoreFileInUnknownFormat() throws IOException {
+        FileOutputStream outputStream = new FileOutputStream(new File(context.getFilesDir(), "shaky_draft"));
+        outputStream.write("not a draft".getBytes("UTF-8"));
+        outputStream.close();
+
+        DraftStore.preload(context);
+
+        assertNull(DraftStore.takeRestorable());
+    }
+}
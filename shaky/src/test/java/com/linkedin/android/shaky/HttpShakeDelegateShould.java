@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Behavior tests for {@link HttpShakeDelegate}, posting to a local stand-in server.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HttpShakeDelegateShould {
+
+    Context context;
+    HttpServer server;
+    URL endpoint;
+    String contentType;
+    String body;
+
+    @Before
+    public void setUp() throws IOException {
+        context = RuntimeEnvironment.getApplication();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/feedback", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+                body = new String(readFully(exchange.getRequestBody()), "UTF-8");
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        endpoint = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/feedback");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void postFieldsAndAttachmentsAsMultipartBody() throws IOException {
+        File attachment = new File(context.getCacheDir(), "log.bin");
+        FileOutputStream outputStream = new FileOutputStream(attachment);
+        outputStream.write("0123456789".getBytes("UTF-8"));
+        outputStream.close();
+
+        Result result = new Result();
+        result.setTitle("Bug");
+        result.setMessage("It \"broke\"");
+        result.getAttachments().add(Uri.fromFile(attachment));
+        RecordingCallback callback = new RecordingCallback();
+
+        new HttpShakeDelegate(endpoint).submitAsync(context, result, callback);
+
+        assertTrue(callback.succeeded);
+        assertNull(callback.error);
+        assertEquals(10, callback.completed);
+        assertTrue(contentType.startsWith("multipart/form-data; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        assertEquals("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n"
+                + "Content-Type: text/plain; charset=UTF-8\r\n"
+                + "\r\n"
+                + "Bug\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"message\"\r\n"
+                + "Content-Type: text/plain; charset=UTF-8\r\n"
+                + "\r\n"
+                + "It \"broke\"\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"attachment\"; filename=\"log.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n"
+                + "\r\n"
+                + "0123456789\r\n"
+                + "--" + boundary + "--\r\n", body);
+    }
+
+    @Test
+    public void reportRuntimeExceptionsThroughCallback() {
+        final IllegalStateException error = new IllegalStateException("not allowed");
+        HttpShakeDelegate delegate = new HttpShakeDelegate(endpoint) {
+            @Override
+            protected void onPrepareConnection(@NonNull HttpURLConnection connection) {
+                throw error;
+            }
+        };
+        RecordingCallback callback = new RecordingCallback();
+
+        delegate.submitAsync(context, new Result(), callback);
+
+        assertEquals(error, callback.error);
+        assertFalse(callback.succeeded);
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static class RecordingCallback implements SubmitCallback {
+        long completed;
+        boolean succeeded;
+        Throwable error;
+
+        @Override
+        public void onProgress(long completed, long total) {
+            this.completed = completed;
+        }
+
+        @Override
+        public void onSuccess() {
+            succeeded = true;
+        }
+
+        @Override
+        public void onFailure(@NonNull Throwable error) {
+            this.error = error;
+        }
+    }
+}
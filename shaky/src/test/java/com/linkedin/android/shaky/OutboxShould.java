@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Behavior tests for {@link Outbox}, draining to a local stand-in server.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class OutboxShould {
+
+    Context context;
+    HttpServer server;
+    AtomicInteger requests;
+    List<Integer> responseCodes;
+
+    @Before
+    public void setUp() throws IOException {
+        context = RuntimeEnvironment.getApplication();
+        requests = new AtomicInteger();
+        responseCodes = Collections.synchronizedList(new ArrayList<Integer>());
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/reports", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                int code = responseCodes.isEmpty() ? 200 : responseCodes.remove(0);
+                exchange.sendResponseHeaders(code, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        Outbox.setTransport(new OutboxTransport() {
+            @Override
+            public void send(List<OutboxReport> reports) throws IOException {
+                URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/reports");
+                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                OutputStream outputStream = connection.getOutputStream();
+                for (OutboxReport report : reports) {
+                    outputStream.write(report.getId().getBytes("UTF-8"));
+                }
+                outputStream.close();
+                int code = connection.getResponseCode();
+                connection.disconnect();
+                if (code != 200) {
+                    throw new IOException("HTTP " + code);
+                }
+            }
+
+            @Override
+            public int getMaxBatchSize() {
+                return 2;
+            }
+
+            @Override
+            public int getMaxAttempts() {
+                return 3;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        Outbox.setTransport(null);
+        server.stop(0);
+    }
+
+    @Test
+    public void keepReportsWithAttachmentsUntilSent() throws IOException {
+        File screenshot = new File(context.getCacheDir(), "screenshot.png");
+        FileOutputStream outputStream = new FileOutputStream(screenshot);
+        outputStream.write(new byte[] {1, 2, 3});
+        outputStream.close();
+
+        Result result = new Result();
+        result.setTitle("Bug");
+        result.setMessage("It broke");
+        result.getAttachments().add(Uri.fromFile(screenshot));
+        result.getData().putInt("build", 42);
+        String id = Outbox.enqueue(context, result);
+        assertTrue(screenshot.delete());
+
+        List<OutboxReport> pending = Outbox.getPendingReports(context);
+        assertEquals(1, pending.size());
+        OutboxReport report = pending.get(0);
+        assertEquals(id, report.getId());
+        assertEquals("Bug", report.getTitle());
+        assertEquals("It broke", report.getMessage());
+        assertEquals("42", report.getData().get("build"));
+        assertEquals(3, report.getAttachmentSize(0));
+
+        assertTrue(Outbox.drain(context));
+        assertTrue(Outbox.getPendingReports(context).isEmpty());
+    }
+
+    @Test
+    public void sendInBatches() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            Outbox.enqueue(context, new Result());
+        }
+
+        assertTrue(Outbox.drain(context));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void retryFailedSendsAndDropAfterMaxAttempts() throws IOException {
+        Outbox.enqueue(context, new Result());
+        responseCodes.add(503);
+
+        assertFalse(Outbox.drain(context));
+        assertEquals(1, Outbox.getPendingReports(context).get(0).getAttempts());
+
+        responseCodes.add(503);
+        responseCodes.add(503);
+        assertFalse(Outbox.drain(context));
+        assertFalse(Outbox.drain(context));
+        assertTrue(Outbox.getPendingReports(context).isEmpty());
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Behavior tests for {@link ResumableUploadTransport}, uploading to a local stand-in server.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ResumableUploadTransportShould {
+
+    Context context;
+    HttpServer server;
+    List<String> requests;
+    List<String> failingPaths;
+    boolean hashesMatch;
+
+    @Before
+    public void setUp() throws IOException {
+        context = RuntimeEnvironment.getApplication();
+        requests = Collections.synchronizedList(new ArrayList<String>());
+        failingPaths = Collections.synchronizedList(new ArrayList<String>());
+        hashesMatch = true;
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/reports", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                byte[] body = readFully(exchange.getRequestBody());
+                requests.add(exchange.getRequestMethod() + " " + path.substring(path.indexOf("/", 1) + 1));
+
+                String hash = exchange.getRequestHeaders().getFirst(ResumableUploadTransport.HEADER_SHA_256);
+                if ("PUT".equals(exchange.getRequestMethod()) && !sha256(body).equals(hash)) {
+                    hashesMatch = false;
+                }
+
+                exchange.sendResponseHeaders(failingPaths.remove(path) ? 500 : 200, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        URL endpoint = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/reports");
+        Outbox.setTransport(new ResumableUploadTransport(endpoint, 4));
+    }
+
+    @After
+    public void tearDown() {
+        Outbox.setTransport(null);
+        server.stop(0);
+    }
+
+    @Test
+    public void resendOnlyMissingChunks() throws IOException {
+        File attachment = new File(context.getCacheDir(), "log.txt");
+        FileOutputStream outputStream = new FileOutputStream(attachment);
+        outputStream.write("0123456789".getBytes("UTF-8"));
+        outputStream.close();
+
+        Result result = new Result();
+        result.getAttachments().add(Uri.fromFile(attachment));
+        String id = Outbox.enqueue(context, result);
+        failingPaths.add("/reports/" + id + "/attachments/0/chunks/1");
+
+        assertFalse(Outbox.drain(context));
+        assertEquals(Arrays.asList("PUT attachments/0/chunks/0", "PUT attachments/0/chunks/1"), stripIds(id));
+
+        requests.clear();
+        assertTrue(Outbox.drain(context));
+        assertEquals(Arrays.asList("PUT attachments/0/chunks/1", "PUT attachments/0/chunks/2", "POST "), stripIds(id));
+        assertTrue(hashesMatch);
+        assertTrue(Outbox.getPendingReports(context).isEmpty());
+    }
+
+    private List<String> stripIds(String id) {
+        List<String> stripped = new ArrayList<>();
+        for (String request : requests) {
+            stripped.add(request.replace(id + "/", "").replace(id, ""));
+        }
+        return stripped;
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return String.format("%064x", new BigInteger(1, hash));
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
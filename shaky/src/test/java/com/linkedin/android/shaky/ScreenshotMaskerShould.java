@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.text.InputType;
+import android.text.method.PasswordTransformationMethod;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.EditText;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Behavior tests for {@link ScreenshotMasker}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ScreenshotMaskerShould {
+    private static final int ROW_HEIGHT = 50;
+    private static final int WIDTH = 100;
+
+    Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    @Test
+    public void findPasswordFieldsAndSensitiveViews() {
+        LinearLayout root = new LinearLayout(context);
+        root.setOrientation(LinearLayout.VERTICAL);
+        addRow(root, createEditText(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PASSWORD));
+        addRow(root, new TextView(context));
+        FrameLayout sensitive = new FrameLayout(context);
+        sensitive.addView(new TextView(context));
+        ScreenshotMasker.setSensitive(sensitive, true);
+        addRow(root, sensitive);
+        TextView transformed = new TextView(context);
+        transformed.setTransformationMethod(PasswordTransformationMethod.getInstance());
+        addRow(root, transformed);
+        EditText hidden = createEditText(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_PASSWORD);
+        hidden.setVisibility(View.GONE);
+        addRow(root, hidden);
+        addRow(root, createEditText(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_VARIATION_PASSWORD));
+        TextView unmarked = new TextView(context);
+        ScreenshotMasker.setSensitive(unmarked, true);
+        ScreenshotMasker.setSensitive(unmarked, false);
+        addRow(root, unmarked);
+        layout(root);
+
+        ScreenshotMasker.MaskedWindow window = ScreenshotMasker.findInWindow(root, 0);
+
+        assertEquals(Arrays.asList(
+                new Rect(0, 0, WIDTH, ROW_HEIGHT),
+                new Rect(0, 2 * ROW_HEIGHT, WIDTH, 3 * ROW_HEIGHT),
+                new Rect(0, 3 * ROW_HEIGHT, WIDTH, 4 * ROW_HEIGHT),
+                new Rect(0, 4 * ROW_HEIGHT, WIDTH, 5 * ROW_HEIGHT)), window.areas);
+    }
+
+    @Test
+    public void hideAllOfSecureWindow() {
+        LinearLayout root = new LinearLayout(context);
+        addRow(root, new TextView(context));
+        layout(root);
+
+        ScreenshotMasker.MaskedWindow window = ScreenshotMasker.findInWindow(root,
+                WindowManager.LayoutParams.FLAG_SECURE);
+
+        assertEquals(Collections.singletonList(new Rect(0, 0, WIDTH, root.getHeight())), window.areas);
+    }
+
+    @Test
+    public void offsetEachWindowFromTopLeftMostOne() {
+        ScreenshotMasker masker = new ScreenshotMasker(Arrays.asList(
+                new ScreenshotMasker.MaskedWindow(new View(context), 0, 100,
+                        Collections.singletonList(new Rect(0, 0, 10, 10))),
+                new ScreenshotMasker.MaskedWindow(new View(context), 50, 200,
+                        Collections.singletonList(new Rect(5, 5, 15, 15)))));
+        Bitmap bitmap = createBitmap();
+
+        masker.maskScreen(bitmap);
+
+        assertEquals(Color.BLACK, bitmap.getPixel(0, 0));
+        assertEquals(Color.BLACK, bitmap.getPixel(9, 9));
+        assertEquals(Color.WHITE, bitmap.getPixel(10, 10));
+        // the second window starts 50 right and 100 down of the first one
+        assertEquals(Color.WHITE, bitmap.getPixel(54, 104));
+        assertEquals(Color.BLACK, bitmap.getPixel(55, 105));
+        assertEquals(Color.BLACK, bitmap.getPixel(64, 114));
+        assertEquals(Color.WHITE, bitmap.getPixel(65, 115));
+        assertEquals(Color.WHITE, bitmap.getPixel(5, 5 + 100));
+    }
+
+    @Test
+    public void maskOnlyTheCapturedWindow() {
+        View captured = new View(context);
+        ScreenshotMasker masker = new ScreenshotMasker(Arrays.asList(
+                new ScreenshotMasker.MaskedWindow(new View(context), 0, 0,
+                        Collections.singletonList(new Rect(0, 0, 10, 10))),
+                new ScreenshotMasker.MaskedWindow(captured, 50, 200,
+                        Collections.singletonList(new Rect(5, 5, 15, 15)))));
+        Bitmap bitmap = createBitmap();
+
+        masker.maskWindow(bitmap, captured);
+
+        assertEquals(Color.WHITE, bitmap.getPixel(0, 0));
+        assertEquals(Color.BLACK, bitmap.getPixel(5, 5));
+        assertEquals(Color.BLACK, bitmap.getPixel(14, 14));
+        assertEquals(Color.WHITE, bitmap.getPixel(15, 15));
+    }
+
+    private EditText createEditText(int inputType) {
+        EditText editText = new EditText(context);
+        editText.setInputType(inputType);
+        return editText;
+    }
+
+    private static void addRow(LinearLayout root, View view) {
+        root.addView(view, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, ROW_HEIGHT));
+    }
+
+    private static void layout(View root) {
+        int height = ROW_HEIGHT * 10;
+        root.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        root.layout(0, 0, WIDTH, height);
+    }
+
+    private static Bitmap createBitmap() {
+        Bitmap bitmap = Bitmap.createBitmap(WIDTH, 200, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.WHITE);
+        return bitmap;
+    }
+}
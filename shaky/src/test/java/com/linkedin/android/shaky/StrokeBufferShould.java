@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Behavior tests for {@link StrokeBuffer}.
+ */
+public class StrokeBufferShould {
+
+    @Test
+    public void roundTripToAQuarterPixel() {
+        StrokeBuffer buffer = new StrokeBuffer();
+        buffer.add(true, true, 10.1f, 20.2f);
+        buffer.add(true, false, 11.3f, 19.9f);
+        buffer.add(false, true, 500f, 1200.6f);
+        buffer.add(false, false, 498.4f, 1210f);
+        // brush changed without lifting the finger
+        buffer.add(true, false, 497f, 1211f);
+
+        StrokeBuffer decoded = StrokeBuffer.decode(buffer.encode());
+
+        assertEquals(buffer.size(), decoded.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            assertEquals(buffer.getX(i), decoded.getX(i), 0.125f);
+            assertEquals(buffer.getY(i), decoded.getY(i), 0.125f);
+            assertEquals(buffer.isThin(i), decoded.isThin(i));
+            assertEquals(buffer.isMove(i), decoded.isMove(i));
+        }
+    }
+
+    @Test
+    public void encodeStrokesInAFractionOfTheRawSize() {
+        StrokeBuffer buffer = new StrokeBuffer();
+        for (int stroke = 0; stroke < 50; stroke++) {
+            for (int i = 0; i < 200; i++) {
+                buffer.add(true, i == 0, 100 + stroke * 10 + i * 1.5f, 300 + i * 2.25f);
+            }
+        }
+
+        // two ints and two floats per point in the old parcel format
+        assertTrue(buffer.encode().length * 4 < buffer.size() * 16);
+    }
+
+    @Test
+    public void removeOnlyTheLastStroke() {
+        StrokeBuffer buffer = new StrokeBuffer();
+        buffer.add(true, true, 0, 0);
+        buffer.add(true, false, 1, 1);
+        buffer.add(true, true, 5, 5);
+        buffer.add(true, false, 6, 6);
+
+        buffer.removeLastStroke();
+
+        assertEquals(2, buffer.size());
+        buffer.removeLastStroke();
+        assertTrue(buffer.isEmpty());
+        buffer.removeLastStroke();
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectTruncatedBytes() {
+        StrokeBuffer buffer = new StrokeBuffer();
+        buffer.add(false, true, 100, 100);
+        buffer.add(false, false, 200, 200);
+        byte[] encoded = buffer.encode();
+        byte[] truncated = new byte[encoded.length - 1];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+
+        StrokeBuffer.decode(truncated);
+    }
+
+    @Test
+    public void growPastTheInitialCapacity() {
+        StrokeBuffer buffer = new StrokeBuffer();
+        for (int i = 0; i < 10000; i++) {
+            buffer.add(false, i % 100 == 0, i, -i);
+        }
+
+        assertEquals(10000, buffer.size());
+        assertEquals(9999f, buffer.getX(9999), 0f);
+        assertFalse(buffer.isMove(9999));
+    }
+
+    @Test
+    public void simplifyNearlyStraightStrokes() {
+        StrokeBuffer buffer = new StrokeBuffer();
+        buffer.add(true, true, 0, 0);
+        buffer.add(true, false, 1, 1);
+        for (int i = 0; i <= 100; i++) {
+            buffer.add(true, i == 0, i * 3, 50 + (i % 2) * 0.5f);
+        }
+
+        buffer.simplifyLastStroke(1f);
+
+        // the earlier stroke is left alone
+        assertEquals(4, buffer.size());
+        assertTrue(buffer.isMove(2));
+        assertEquals(0f, buffer.getX(2), 0f);
+        assertEquals(300f, buffer.getX(3), 0f);
+    }
+
+    @Test
+    public void keepCornersWhenSimplifying() {
+        StrokeBuffer buffer = new StrokeBuffer();
+        for (int i = 0; i <= 50; i++) {
+            buffer.add(false, i == 0, i, 0);
+        }
+        for (int i = 1; i <= 50; i++) {
+            buffer.add(false, false, 50, i);
+        }
+
+        buffer.simplifyLastStroke(1f);
+
+        assertEquals(3, buffer.size());
+        assertEquals(50f, buffer.getX(1), 0f);
+        assertEquals(0f, buffer.getY(1), 0f);
+        assertFalse(buffer.isMove(2));
+    }
+
+    @Test
+    public void keepPixelateStrokesApartFromTheOthers() {
+        StrokeBuffer buffer = new StrokeBuffer();
+        buffer.add(StrokeBuffer.BRUSH_THIN, true, 0, 0);
+        buffer.add(StrokeBuffer.BRUSH_THIN, false, 10, 10);
+        buffer.add(StrokeBuffer.BRUSH_PIXELATE, true, 20, 20);
+        buffer.add(StrokeBuffer.BRUSH_PIXELATE, false, 30, 30);
+
+        StrokeBuffer decoded = StrokeBuffer.decode(buffer.encode());
+        assertEquals(StrokeBuffer.BRUSH_THIN, decoded.getBrush(1));
+        assertEquals(StrokeBuffer.BRUSH_PIXELATE, decoded.getBrush(3));
+        assertTrue(decoded.hasBrush(StrokeBuffer.BRUSH_PIXELATE));
+        assertFalse(decoded.hasBrush(StrokeBuffer.BRUSH_THICK));
+
+        StrokeBuffer pixelated = decoded.filter(StrokeBuffer.BRUSH_PIXELATE, true);
+        assertEquals(2, pixelated.size());
+        assertTrue(pixelated.isMove(0));
+        assertEquals(20f, pixelated.getX(0), 0f);
+
+        StrokeBuffer others = decoded.filter(StrokeBuffer.BRUSH_PIXELATE, false);
+        assertEquals(2, others.size());
+        assertTrue(others.isThin(1));
+    }
+
+    @Test
+    public void putErasedStrokesBackWhereTheyWere() {
+        StrokeBuffer strokes = new StrokeBuffer();
+        for (int i = 0; i < 3; i++) {
+            int brush = i == 1 ? StrokeBuffer.BRUSH_THICK : StrokeBuffer.BRUSH_THIN;
+            strokes.add(brush, true, 0, i * 100);
+            strokes.add(brush, false, 100, i * 100);
+        }
+
+        StrokeBuffer removed = strokes.removeStroke(2);
+        assertEquals(4, strokes.size());
+        assertEquals(200f, strokes.getY(2), 0f);
+
+        strokes.insertStroke(2, removed);
+        assertEquals(6, strokes.size());
+        assertTrue(strokes.isMove(2));
+        assertEquals(100f, strokes.getY(3), 0f);
+        assertEquals(StrokeBuffer.BRUSH_THICK, strokes.getBrush(3));
+        assertEquals(200f, strokes.getY(4), 0f);
+    }
+}
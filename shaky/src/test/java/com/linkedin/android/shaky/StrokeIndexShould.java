@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2026 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.android.shaky;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Behavior tests for {@link StrokeIndex}.
+ */
+public class StrokeIndexShould {
+
+    private final StrokeBuffer strokes = new StrokeBuffer();
+    private final StrokeIndex index = new StrokeIndex(64f, 12f, 48f);
+
+    @Test
+    public void findTheStrokeUnderThePoint() {
+        addLine(StrokeBuffer.BRUSH_THIN, 0, 0, 1000, 0);
+        addLine(StrokeBuffer.BRUSH_THIN, 0, 500, 1000, 500);
+        index.rebuild(strokes);
+
+        assertEquals(2, index.findStroke(strokes, 700, 505, 4f));
+        assertEquals(0, index.findStroke(strokes, 300, -8, 4f));
+        assertEquals(-1, index.findStroke(strokes, 300, 250, 4f));
+    }
+
+    @Test
+    public void findLongDiagonalSegmentsInEveryCellTheyCross() {
+        addLine(StrokeBuffer.BRUSH_THIN, 10, 10, 2000, 1500);
+        index.rebuild(strokes);
+
+        for (int i = 0; i <= 10; i++) {
+            float t = i / 10f;
+            assertEquals(0, index.findStroke(strokes, 10 + 1990 * t, 10 + 1490 * t, 1f));
+        }
+    }
+
+    @Test
+    public void reachFartherForThickStrokes() {
+        addLine(StrokeBuffer.BRUSH_THICK, 0, 0, 100, 0);
+        addLine(StrokeBuffer.BRUSH_THIN, 0, 200, 100, 200);
+        index.rebuild(strokes);
+
+        assertEquals(0, index.findStroke(strokes, 50, 26, 4f));
+        assertEquals(-1, index.findStroke(strokes, 50, 226, 4f));
+    }
+
+    @Test
+    public void forgetRemovedStrokes() {
+        addLine(StrokeBuffer.BRUSH_THIN, 0, 0, 100, 0);
+        index.addStroke(strokes, 0);
+        addLine(StrokeBuffer.BRUSH_THIN, 0, 100, 100, 100);
+        index.addStroke(strokes, 2);
+
+        index.removeStroke(strokes, 2);
+        strokes.removeLastStroke();
+
+        assertEquals(-1, index.findStroke(strokes, 50, 100, 4f));
+        assertEquals(0, index.findStroke(strokes, 50, 0, 4f));
+    }
+
+    @Test
+    public void followStrokesThatMovedWhenAnEarlierOneWasRemovedOrPutBack() {
+        addLine(StrokeBuffer.BRUSH_THIN, 0, 0, 100, 0);
+        addLine(StrokeBuffer.BRUSH_THIN, 0, 100, 100, 100);
+        addLine(StrokeBuffer.BRUSH_THIN, 0, 200, 100, 200);
+        index.rebuild(strokes);
+
+        index.removeStroke(strokes, 2);
+        StrokeBuffer erased = strokes.removeStroke(2);
+
+        assertEquals(-1, index.findStroke(strokes, 50, 100, 4f));
+        assertEquals(2, index.findStroke(strokes, 50, 200, 4f));
+
+        strokes.insertStroke(2, erased);
+        index.insertStroke(strokes, 2);
+
+        assertEquals(2, index.findStroke(strokes, 50, 100, 4f));
+        assertEquals(4, index.findStroke(strokes, 50, 200, 4f));
+        assertEquals(0, index.findStroke(strokes, 50, 0, 4f));
+    }
+
+    private void addLine(int brush, float x0, float y0, float x1, float y1) {
+        strokes.add(brush, true, x0, y0);
+        strokes.add(brush, false, x1, y1);
+    }
+}